@@ -2,9 +2,30 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.Stack;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import engine.Bitboard;
+import engine.EndgameSolver;
+import engine.Engine;
+import engine.Game;
+import engine.MoveLog;
+import engine.OpeningBook;
+import engine.Position;
+import engine.Search;
+import engine.SearchResult;
+import engine.SearchStats;
+import engine.TranspositionTable;
 
 public class Othello extends JPanel {
 
@@ -14,17 +35,81 @@ public class Othello extends JPanel {
     final int GRID_SIZE = 8;
     final int BOX_SIZE = 100;
     final int PANEL_SIZE = BOX_SIZE * GRID_SIZE;
-    char[][] board = new char[GRID_SIZE][GRID_SIZE];
+    final int DEFAULT_HASH_MB = 32;
+    // The player is black and the AI white
+    final int PLAYER_COLOR = Position.BLACK;
+    final int AI_COLOR = Position.WHITE;
+    private final Game game = new Game();
 
     private int aiDepth;
+    // When above 0 the AI searches by time instead of to aiDepth
+    private long aiTimeMillis;
     private boolean playerTurn;
-    private Stack<char[][]> undoStack = new Stack<>();
-    private Stack<char[][]> redoStack = new Stack<>();
+    // Every move of the game, passes included, with undo and redo as a cursor into it
+    private MoveLog history = new MoveLog();
     private javax.swing.JLabel statusBar = null;
     private Runnable onPass = null;
     private Runnable onWin = null;
     private Point lastMove = null;
-    private List<Point> legalMoves = new ArrayList<>();
+
+    // Rendering. The board and the two discs are drawn once into images at the scale of the
+    // screen (so they stay sharp on high-DPI displays) and only redrawn if that scale changes.
+    // A repaint copies them for the squares that changed since the last one and nothing else.
+    private static final Color BOARD_COLOR = new Color(0, 144, 103);
+    private static final Color LEGAL_MOVE_COLOR = new Color(50, 200, 50, 120);
+    private BufferedImage boardImage, blackDisc, whiteDisc;
+    private double imageScale;
+    // What was last sent to the screen; boardChanged() repaints the squares that differ from it
+    private long shownBlack, shownWhite;
+    // Highlighted legal moves of the player, updated by boardChanged() and not while painting
+    private long shownMoves;
+    private int shownLastMove = -1;
+    private int endgameEmpties = EndgameSolver.DEFAULT_EMPTIES;
+    private int aiEvaluation = Search.PATTERN_EVAL;
+    private OpeningBook book = loadBook();
+    private Engine engine = createEngine(
+            Runtime.getRuntime().availableProcessors(), new TranspositionTable(DEFAULT_HASH_MB));
+
+    // AI searches run one at a time on this thread, never on the EDT
+    private final ExecutorService aiExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "othello-ai");
+        t.setDaemon(true);
+        return t;
+    });
+    private Timer aiTimer = null;
+    private Future<?> aiSearch = null;
+    // Bumped whenever the AI's turn is cancelled, so results of older searches are dropped
+    private int aiGeneration = 0;
+    private boolean aiThinking = false;
+    private String aiProgress = "";
+    private int lastAIDepth = 0;
+    // Debug line about the AI's last search, shown after the status when enabled
+    private boolean showSearchStats = false;
+    private String searchStats = "";
+
+    // Pondering: while the player thinks, the AI thread searches its answer to every reply
+    private boolean ponder = true;
+    private Future<?> ponderTask = null;
+    private int ponderGeneration = 0;
+    private int ponderTarget = 0;
+    // AI answer and the depth it was searched to, indexed by the player's reply square
+    private final int[] ponderMove = new int[Bitboard.SQUARES];
+    private final int[] ponderDepth = new int[Bitboard.SQUARES];
+
+    // Analysis: the pondering searches also score each of the player's moves, deepening until the
+    // player clicks, and the scores are drawn on the highlighted squares as they come in
+    private static final Font SCORE_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 22);
+    private static final Font DEPTH_FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 13);
+    private static final Color BEST_SCORE_COLOR = Color.YELLOW;
+    private boolean analysis = false;
+    // Score in discs for the player and its two lines of text, made when a result arrives so that
+    // painting only draws them
+    private final double[] analysisScore = new double[Bitboard.SQUARES];
+    private final String[] analysisText = new String[Bitboard.SQUARES];
+    private final String[] analysisDepth = new String[Bitboard.SQUARES];
+    // Squares showing a score, and the best of them (-1 for none)
+    private long shownAnalysis;
+    private int bestAnalysed = -1;
 
    public Othello(int depth) {
         // Store chosen AI depth
@@ -32,9 +117,7 @@ public class Othello extends JPanel {
         this.playerTurn = true;
         setPreferredSize(new Dimension(PANEL_SIZE, PANEL_SIZE));
         setUpBoard();
-
-        // Compute initial legal moves for the human
-        legalMoves = computeLegalMovesFor(PLAYER);
+        boardChanged();
 
         addMouseListener(new MouseAdapter() {
             @Override
@@ -47,16 +130,24 @@ public class Othello extends JPanel {
 
                 // 2) If human has a valid move at (r, c):
                 if (isValidMove(r, c, PLAYER)) {
-                    // a) Snapshot for undo + highlight
-                    pushUndo();
+                    int pondered = takePonderedAnswer(Bitboard.square(r, c));
+
+                    // a) Highlight
                     lastMove = new java.awt.Point(r, c);
 
                     // b) Perform human move
                     getMove(r, c, PLAYER);
-                    repaint();
-
-                    // c) Now schedule the AI move with a delay
-                    triggerAIMoveWithDelay();
+                    boardChanged();
+
+                    // c) Answer at once from the opening book or if pondering already
+                    //    found the reply, otherwise schedule the AI move with a delay
+                    int answer = bookMove();
+                    if (answer == Position.PASS)
+                        answer = pondered;
+                    if (answer != Position.PASS)
+                        playInstantMove(answer);
+                    else
+                        triggerAIMoveWithDelay();
                 }
                 // 3) Else if human has no moves but AI does → forced pass
                 else if (!hasValidMove(PLAYER) && hasValidMove(AI)) {
@@ -80,101 +171,26 @@ public class Othello extends JPanel {
         });
     }
 
-    // Check game state evaluate
-    public char evaluate() {
-        int playerCount = 0;
-        int AICount = 0;
-        for (int r = 0; r < GRID_SIZE; r++)// checking if there's any empty spots
-            for (int c = 0; c < GRID_SIZE; c++) {
-                if (board[r][c] == EMPTY)
-                    return 'N';
-                if (board[r][c] == PLAYER)
-                    playerCount++;
-                else if (board[r][c] == AI)
-                    AICount++;
-            }
-        if (!hasValidMove(PLAYER) && !hasValidMove(AI)) {
-            if (AICount > playerCount)
-                return AI;
-            if (AICount < playerCount)
-                return PLAYER;
-        }
-        return 'D';
-    }
-
-    // Evaluation Function (to be updated with weights)
-    public int evalFunction() {
-        int playerCount = 0;
-        int AICount = 0;
-        for (int r = 0; r < GRID_SIZE; r++)// checking if there's any empty spots
-            for (int c = 0; c < GRID_SIZE; c++) {
-                if (board[r][c] == PLAYER)
-                    playerCount++;
-                else if (board[r][c] == AI)
-                    AICount++;
-            }
-        return AICount - playerCount;
-    }
-
-    // Minimax
-    public int minimax(boolean isMax, int alpha, int beta, int depth) {
-        if (depth == 0)
-            return evalFunction();
-        char eval = evaluate();
-        // System.out.println(eval);
-        switch (eval) {
-            case PLAYER:
-                return -100;
-            case AI:
-                return 100;
-            case 'D':
-                return evalFunction();
-        }
-        int best = isMax ? -1000 : 1000;
-        for (int r = 0; r < GRID_SIZE; r++) {
-            for (int c = 0; c < GRID_SIZE; c++) {
-                if (board[r][c] == EMPTY && isValidMove(r, c, isMax ? AI : PLAYER)) {
-                    // Need to manually clone each array for some reason??
-                    char[][] carboncopy = new char[board.length][];
-                    for (int i = 0; i < board.length; i++) {
-                        carboncopy[i] = board[i].clone();
-                    }
-                    getMove(r, c, isMax ? AI : PLAYER);
-                    int value = minimax(!isMax, alpha, beta, depth - 1);
-                    board = carboncopy;
-                    if (isMax) {
-                        best = Math.max(best, value);
-                        alpha = Math.max(alpha, best);
-                    } else {
-                        best = Math.min(best, value);
-                        beta = Math.min(beta, best);
-                    }
-                    if (beta <= alpha)
-                        return best;
-                }
-            }
-        }
-        return best;
+    // Move making. The panel only lets a side move out of turn when the other one cannot move,
+    // so the side whose turn it was passed.
+    public void getMove(int r, int c, char player) {
+        if (game.sideToMove() != colorOf(player))
+            play(Position.PASS);
+        play(Bitboard.square(r, c));
     }
 
-    // Move making
-    public void getMove(int r, int c, char player) {
-        board[r][c] = player;
-        for (int moveR = -1; moveR <= 1; moveR++)
-            for (int moveC = -1; moveC <= 1; moveC++)
-                if (moveR != 0 || moveC != 0)
-                    if (canFlip(r, c, moveR, moveC, player))
-                        flip(r, c, moveR, moveC, player);
+    private void play(int move) {
+        game.play(move);
+        history.play(move);
     }
 
     public boolean getAIMove(int depth) {
         if (hasValidMove(AI)) {
             int[] aiMove = AIMove(depth);
             if (aiMove != null) {
-                pushUndo();
                 lastMove = new Point(aiMove[0], aiMove[1]);
                 getMove(aiMove[0], aiMove[1], AI);
-                repaint();
+                boardChanged();
                 return true;
             }
         }
@@ -182,147 +198,290 @@ public class Othello extends JPanel {
     }
 
     public int[] AIMove(int depth) {
-        int[] output = new int[2];
-        int best = -1000;
-        for (int r = 0; r < GRID_SIZE; r++) {
-            for (int c = 0; c < GRID_SIZE; c++) {
-                if (board[r][c] == EMPTY && isValidMove(r, c, AI)) {
-                    char[][] carboncopy = new char[board.length][];
-                    for (int i = 0; i < board.length; i++)
-                        carboncopy[i] = board[i].clone();
-                    getMove(r, c, AI);
-                    int current = minimax(false, Integer.MIN_VALUE, Integer.MAX_VALUE, depth - 1);
-                    board = carboncopy;
-                    if (current > best) {
-                        best = current;
-                        output[0] = r;
-                        output[1] = c;
-                    }
+        return toPoint(searchAIMove(depth, 0).move());
+    }
+
+    // Iterative deepening: the best move found within 'millis' milliseconds
+    public int[] AIMoveInTime(long millis) {
+        return toPoint(searchAIMove(Search.MAX_DEPTH, millis).move());
+    }
+
+    // The AI's move, from the book if it has one
+    private SearchResult searchAIMove(int depth, long millis) {
+        return engine.search(game.discs(Position.BLACK), game.discs(Position.WHITE), AI_COLOR, depth, millis);
+    }
+
+    private static int[] toPoint(int sq) {
+        if (sq == Position.PASS)
+            return null;
+        return new int[] { Bitboard.row(sq), Bitboard.col(sq) };
+    }
+
+    // The AI's move from the opening book, or Position.PASS if the position is not in it
+    private int bookMove() {
+        return engine.bookMove(game.discs(Position.BLACK), game.discs(Position.WHITE), AI_COLOR);
+    }
+
+    // Drawing stuff
+    @Override
+    public void paintComponent(Graphics g) {
+        // Every pixel is covered below, so the usual background fill is skipped
+        Graphics2D g2 = (Graphics2D) g;
+        prepareImages(g2.getTransform());
+        g2.drawImage(boardImage, 0, 0, PANEL_SIZE, PANEL_SIZE, null);
+
+        Rectangle clip = g.getClipBounds();
+        if (clip == null)
+            clip = new Rectangle(0, 0, PANEL_SIZE, PANEL_SIZE);
+        int firstRow = Math.max(0, clip.y / BOX_SIZE), lastRow = Math.min(GRID_SIZE - 1, (clip.y + clip.height - 1) / BOX_SIZE);
+        int firstCol = Math.max(0, clip.x / BOX_SIZE), lastCol = Math.min(GRID_SIZE - 1, (clip.x + clip.width - 1) / BOX_SIZE);
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstCol; c <= lastCol; c++) {
+                int x = c * BOX_SIZE, y = r * BOX_SIZE;
+                int sq = Bitboard.square(r, c);
+                if ((shownMoves & (1L << sq)) != 0) {
+                    g.setColor(LEGAL_MOVE_COLOR);
+                    g.fillRect(x, y, BOX_SIZE, BOX_SIZE);
                 }
+                if (sq == shownLastMove) {
+                    g.setColor(Color.YELLOW);
+                    g.drawRect(x + 2, y + 2, BOX_SIZE - 4, BOX_SIZE - 4);
+                }
+                if ((shownAnalysis & (1L << sq)) != 0)
+                    drawAnalysis(g2, sq, x, y);
+                char piece = pieceAt(r, c);
+                if (piece != EMPTY)
+                    drawPiece(g, r, c, piece);
             }
         }
-        return output;
     }
 
-    public void flip(int r, int c, int moveR, int moveC, char player) {
-        char enemy = (player == PLAYER) ? AI : PLAYER;
-        r += moveR;
-        c += moveC;
-        while (r >= 0 && r < GRID_SIZE && c >= 0 && c < GRID_SIZE && board[r][c] == enemy) {
-            board[r][c] = player;
-            r += moveR;
-            c += moveC;
+    // An analysed move's score in the middle of its square with the depth below it, the best move's
+    // in its own colour
+    private void drawAnalysis(Graphics2D g, int sq, int x, int y) {
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setColor(sq == bestAnalysed ? BEST_SCORE_COLOR : Color.WHITE);
+        drawCentred(g, analysisText[sq], SCORE_FONT, x, y + BOX_SIZE / 2 + 4);
+        g.setColor(Color.WHITE);
+        drawCentred(g, analysisDepth[sq], DEPTH_FONT, x, y + BOX_SIZE / 2 + 24);
+    }
+
+    private void drawCentred(Graphics2D g, String text, Font font, int x, int baseline) {
+        g.setFont(font);
+        g.drawString(text, x + (BOX_SIZE - g.getFontMetrics().stringWidth(text)) / 2, baseline);
+    }
+
+    public void drawPiece(Graphics g, int r, int c, char player) {
+        g.drawImage(player == PLAYER ? blackDisc : whiteDisc, c * BOX_SIZE, r * BOX_SIZE, BOX_SIZE, BOX_SIZE, null);
+    }
+
+    // Call after anything on the board changed: discs, the last move or whose turn it is.
+    // Works out the player's highlighted moves and repaints just the squares that look different.
+    private void boardChanged() {
+        long black = game.discs(Position.BLACK), white = game.discs(Position.WHITE);
+        long moves = playerTurn ? legalMoves(PLAYER) : 0;
+        int last = lastMove == null ? -1 : Bitboard.square(lastMove.x, lastMove.y);
+        long dirty = (black ^ shownBlack) | (white ^ shownWhite) | (moves ^ shownMoves);
+        if (last != shownLastMove) {
+            if (last >= 0)
+                dirty |= 1L << last;
+            if (shownLastMove >= 0)
+                dirty |= 1L << shownLastMove;
+        }
+        shownBlack = black;
+        shownWhite = white;
+        shownMoves = moves;
+        shownLastMove = last;
+        // A score only belongs on a move the player can make
+        shownAnalysis &= moves;
+        repaintSquares(dirty);
+    }
+
+    private void repaintSquares(long squares) {
+        for (; squares != 0; squares &= squares - 1) {
+            int sq = Long.numberOfTrailingZeros(squares);
+            repaint(Bitboard.col(sq) * BOX_SIZE, Bitboard.row(sq) * BOX_SIZE, BOX_SIZE, BOX_SIZE);
         }
     }
 
-    // Drawing stuff
-        public void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        // Background color
-        g.setColor(new Color(0, 144, 103));
-        g.fillRect(0, 0, PANEL_SIZE, PANEL_SIZE);
+    // (Re)draws the cached images if the screen scale is not the one they were drawn at
+    private void prepareImages(AffineTransform screen) {
+        double scale = Math.max(screen.getScaleX(), screen.getScaleY());
+        if (boardImage != null && scale == imageScale)
+            return;
+        imageScale = scale;
 
-        // Draw grid lines
+        boardImage = newImage(PANEL_SIZE, scale, false);
+        Graphics2D g = scaledGraphics(boardImage, scale);
+        g.setColor(BOARD_COLOR);
+        g.fillRect(0, 0, PANEL_SIZE, PANEL_SIZE);
         g.setColor(Color.BLACK);
         for (int i = 0; i <= GRID_SIZE; i++) {
             g.drawLine(i * BOX_SIZE, 0, i * BOX_SIZE, PANEL_SIZE);
             g.drawLine(0, i * BOX_SIZE, PANEL_SIZE, i * BOX_SIZE);
         }
+        g.dispose();
 
-        if (playerTurn) {
-            legalMoves = computeLegalMovesFor(PLAYER);
-        } else {
-            legalMoves.clear();
-        }
-        for (java.awt.Point p : legalMoves) {
-            g.setColor(new java.awt.Color(50, 200, 50, 120));
-            int x = p.y * BOX_SIZE;
-            int y = p.x * BOX_SIZE;
-            g.fillRect(x, y, BOX_SIZE, BOX_SIZE);
-        }
-
-        if (lastMove != null) {
-            g.setColor(Color.YELLOW);
-            int x = lastMove.y * BOX_SIZE;
-            int y = lastMove.x * BOX_SIZE;
-            g.drawRect(x + 2, y + 2, BOX_SIZE - 4, BOX_SIZE - 4);
-        }
-
-        for (int r = 0; r < GRID_SIZE; r++) {
-            for (int c = 0; c < GRID_SIZE; c++) {
-                if (board[r][c] != EMPTY) {
-                    drawPiece(g, r, c, board[r][c]);
-                }
-            }
-        }
+        blackDisc = discImage(Color.BLACK, scale);
+        whiteDisc = discImage(Color.WHITE, scale);
     }
 
-
-    public void drawPiece(Graphics g, int r, int c, char player) {
-        int x = c * BOX_SIZE + 10;
-        int y = r * BOX_SIZE + 10;
+    private BufferedImage discImage(Color color, double scale) {
+        BufferedImage image = newImage(BOX_SIZE, scale, true);
+        Graphics2D g = scaledGraphics(image, scale);
         int d = BOX_SIZE - 20;
-        g.setColor(player == PLAYER ? Color.BLACK : Color.WHITE);
-        g.fillOval(x, y, d, d);
+        g.setColor(color);
+        g.fillOval(10, 10, d, d);
         g.setColor(Color.BLACK);
-        g.drawOval(x, y, d, d);
+        g.drawOval(10, 10, d, d);
+        g.dispose();
+        return image;
+    }
+
+    private static BufferedImage newImage(int size, double scale, boolean transparent) {
+        int pixels = (int) Math.ceil(size * scale);
+        return new BufferedImage(pixels, pixels, transparent ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static Graphics2D scaledGraphics(BufferedImage image, double scale) {
+        Graphics2D g = image.createGraphics();
+        g.scale(scale, scale);
+        return g;
     }
 
     public void setUpBoard() {
-        for (int r = 0; r < GRID_SIZE; r++)
-            for (int c = 0; c < GRID_SIZE; c++)
-                board[r][c] = EMPTY;
-        board[3][3] = AI;
-        board[3][4] = PLAYER;
-        board[4][3] = PLAYER;
-        board[4][4] = AI;
+        game.reset();
+        history.start(game.discs(Position.BLACK), game.discs(Position.WHITE), game.sideToMove());
+    }
+
+    public char pieceAt(int r, int c) {
+        long square = Bitboard.bit(r, c);
+        if ((game.discs(PLAYER_COLOR) & square) != 0)
+            return PLAYER;
+        if ((game.discs(AI_COLOR) & square) != 0)
+            return AI;
+        return EMPTY;
+    }
+
+    public int countDiscs(char player) {
+        return game.count(colorOf(player));
+    }
+
+    private int colorOf(char player) {
+        return player == PLAYER ? PLAYER_COLOR : AI_COLOR;
     }
 
     // Conditionals
     public boolean isValidMove(int r, int c, char player) {
-        if (board[r][c] != EMPTY)
+        if (r < 0 || r >= GRID_SIZE || c < 0 || c >= GRID_SIZE)
             return false;
-        for (int moveR = -1; moveR <= 1; moveR++)
-            for (int moveC = -1; moveC <= 1; moveC++)
-                if (moveR != 0 || moveC != 0)
-                    if (canFlip(r, c, moveR, moveC, player))
-                        return true;
-        return false;
+        return (legalMoves(player) & Bitboard.bit(r, c)) != 0;
     }
 
-    public boolean canFlip(int r, int c, int moveR, int moveC, char player) {
-        char enemy = (player == PLAYER) ? AI : PLAYER;
-        r += moveR;
-        c += moveC;
-        boolean foundEnemy = false;
-        while (r >= 0 && r < GRID_SIZE && c >= 0 && c < GRID_SIZE) {
-            if (board[r][c] == enemy) {
-                foundEnemy = true;
-            } else if (board[r][c] == player) {
-                return foundEnemy;
-            } else {
-                break;
-            }
-            r += moveR;
-            c += moveC;
-        }
-        return false;
+    // Squares 'player' could play, whether or not it is their turn
+    public long legalMoves(char player) {
+        int color = colorOf(player);
+        return Bitboard.legalMoves(game.discs(color), game.discs(color ^ 1));
     }
 
     public boolean hasValidMove(char player) {
-        for (int r = 0; r < GRID_SIZE; r++) {
-            for (int c = 0; c < GRID_SIZE; c++) {
-                if (isValidMove(r, c, player))
-                    return true;
-            }
-        }
-        return false;
+        return legalMoves(player) != 0;
     }
 
     public void setAIDepth(int depth) {
         this.aiDepth = depth;
     }
 
+    // Time budget per AI move in milliseconds; 0 goes back to searching to a fixed depth
+    public void setAITime(long millis) {
+        this.aiTimeMillis = millis;
+    }
+
+    // Whether the AI searches on the player's time
+    public void setPonder(boolean ponder) {
+        this.ponder = ponder;
+        restartPondering();
+    }
+
+    // Whether the player's moves are scored in the background, with the scores shown on the board
+    public void setAnalysis(boolean analysis) {
+        this.analysis = analysis;
+        restartPondering();
+    }
+
+    // Opening book the AI plays from before it searches; null for none
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+        engine.setOpeningBook(book);
+    }
+
+    // OpeningBook.DEFAULT_FILE in the working directory, if there is a readable one
+    private static OpeningBook loadBook() {
+        Path file = Paths.get(OpeningBook.DEFAULT_FILE);
+        if (!Files.isReadable(file))
+            return null;
+        try {
+            return OpeningBook.open(file);
+        } catch (IOException e) {
+            // A damaged book just means playing without one
+            return null;
+        }
+    }
+
+    // How the AI scores positions at the end of its search: Search.DISC_EVAL,
+    // Search.POSITIONAL_EVAL or Search.PATTERN_EVAL
+    public void setAIEvaluation(int evaluation) {
+        this.aiEvaluation = evaluation;
+        // A fresh table: scores of the old evaluation must not leak into the new one
+        replaceSearch(engine.threads(), new TranspositionTable(engine.transpositionTable().sizeMB()));
+    }
+
+    // Empty squares at which the AI stops searching and plays the game out exactly; 0 never does
+    public void setEndgameEmpties(int empties) {
+        this.endgameEmpties = empties;
+        engine.setEndgameEmpties(empties);
+    }
+
+    // Size of the AI's transposition table in megabytes
+    public void setHashSize(int megabytes) {
+        replaceSearch(engine.threads(), new TranspositionTable(megabytes));
+    }
+
+    // Number of threads the AI searches with (all of them share one transposition table)
+    public void setAIThreads(int threads) {
+        replaceSearch(threads, engine.transpositionTable());
+    }
+
+    // Stops any AI search and releases the AI's threads; call when the panel is thrown away
+    public void shutdown() {
+        stopPondering();
+        cancelAISearch();
+        aiExecutor.shutdownNow();
+        engine.shutdown();
+    }
+
+    @Override
+    public void removeNotify() {
+        // Restart and closing the window both take the panel out of its frame
+        shutdown();
+        super.removeNotify();
+    }
+
+    private void replaceSearch(int threads, TranspositionTable table) {
+        stopPondering();
+        cancelAISearch();
+        engine.shutdown();
+        engine = createEngine(threads, table);
+    }
+
+    private Engine createEngine(int threads, TranspositionTable table) {
+        Engine e = new Engine(threads, table);
+        e.setEndgameEmpties(endgameEmpties);
+        e.setEvaluation(aiEvaluation);
+        e.setOpeningBook(book);
+        return e;
+    }
+
     public void setStatusBar(javax.swing.JLabel statusBar) {
         this.statusBar = statusBar;
         updateStatus();
@@ -337,102 +496,347 @@ public class Othello extends JPanel {
     }
     
 
-    private void pushUndo() {
-        undoStack.push(copyBoard(board));
-        redoStack.clear();
-    }
-
+    // Takes back moves up to the player's previous turn, however many AI moves and passes that
+    // skips. While the AI is still thinking that is just the player's last move.
     public void undoMove() {
-        if (!undoStack.isEmpty()) {
-            redoStack.push(copyBoard(board));
-            board = undoStack.pop();
-            redoStack.push(copyBoard(board));
-            board = undoStack.pop();
-            legalMoves = computeLegalMovesFor(PLAYER);
-            playerTurn = true;
-            repaint();
-            updateStatus();
-        }
+        stopPondering();
+        boolean thinking = aiThinking;
+        if (thinking)
+            cancelAISearch();
+        int ply = history.ply() - 1;
+        while (ply >= 0 && !isPlayerTurn(history.gameAt(ply)))
+            ply--;
+        if (ply >= 0)
+            resumeAt(ply);
+        else if (thinking)
+            resumeAt(history.ply());
     }
 
+    // Replays moves up to the player's next turn, or to the end of the log
     public void redoMove() {
-        if (!redoStack.isEmpty()) {
-            undoStack.push(copyBoard(board));
-            board = redoStack.pop();
-            undoStack.push(copyBoard(board));
-            board = redoStack.pop();
-            legalMoves = computeLegalMovesFor(PLAYER);
-            playerTurn = true;
-            repaint();
-            updateStatus();
-        }
+        if (aiThinking || !history.canRedo())
+            return;
+        stopPondering();
+        int ply = history.ply() + 1;
+        while (ply < history.length() && !isPlayerTurn(history.gameAt(ply)))
+            ply++;
+        resumeAt(ply);
+    }
+
+    // Goes to the position after 'ply' moves of the game (0 to the number recorded), keeping the
+    // moves after it for redo
+    public void jumpTo(int ply) {
+        stopPondering();
+        if (aiThinking)
+            cancelAISearch();
+        resumeAt(ply);
+    }
+
+    // The game so far as a GGF record, which NBoard and other programs read
+    public String exportGame() {
+        return history.toGgf();
+    }
+
+    // Replaces the game with a GGF record (see exportGame) and continues from its last position
+    public void importGame(String ggf) {
+        MoveLog imported = MoveLog.fromGgf(ggf);
+        stopPondering();
+        if (aiThinking)
+            cancelAISearch();
+        history = imported;
+        resumeAt(history.ply());
     }
 
-    private char[][] copyBoard(char[][] src) {
-        char[][] dst = new char[src.length][src[0].length];
-        for (int i = 0; i < src.length; i++) {
-            dst[i] = src[i].clone();
+    private boolean isPlayerTurn(Game position) {
+        return position.sideToMove() == PLAYER_COLOR && position.legalMoves() != 0;
+    }
+
+    // Shows the position after 'ply' moves of the log and gives the turn to whoever has it
+    private void resumeAt(int ply) {
+        history.seek(ply);
+        game.set(history.discs(Position.BLACK), history.discs(Position.WHITE), history.sideToMove());
+        int last = history.lastMove();
+        lastMove = last >= 0 && last != Position.PASS ? new Point(Bitboard.row(last), Bitboard.col(last)) : null;
+        if (game.sideToMove() == AI_COLOR && !game.isOver() && !game.mustPass()) {
+            triggerAIMoveWithDelay();
+            return;
         }
-        return dst;
+        playerTurn = true;
+        boardChanged();
+        restartPondering();
+        updateStatus();
     }
 
     private void updateStatus() {
         if (statusBar == null)
             return;
 
-        int playerCount = 0, aiCount = 0;
-        for (int r = 0; r < GRID_SIZE; r++) {
-            for (int c = 0; c < GRID_SIZE; c++) {
-                if (board[r][c] == PLAYER)
-                    playerCount++;
-                else if (board[r][c] == AI)
-                    aiCount++;
-            }
-        }
+        int playerCount = countDiscs(PLAYER), aiCount = countDiscs(AI);
 
-        String turnText = playerTurn ? "Player's turn" : "AI is thinking…";
-        statusBar.setText("Player: " + playerCount + "   AI: " + aiCount + "   " + turnText);
+        String turnText = playerTurn ? "Player's turn" : "AI is thinking…" + aiProgress;
+        String debug = showSearchStats && playerTurn && !searchStats.isEmpty() ? "   [" + searchStats + "]" : "";
+        statusBar.setText("Player: " + playerCount + "   AI: " + aiCount + "   " + turnText + debug);
     }
 
     List<Point> computeLegalMovesFor(char playerChar) {
         List<Point> moves = new ArrayList<>();
-        for (int r = 0; r < GRID_SIZE; r++) {
-            for (int c = 0; c < GRID_SIZE; c++) {
-                if (board[r][c] == EMPTY && isValidMove(r, c, playerChar)) {
-                    moves.add(new Point(r, c));
-                }
-            }
+        long mask = legalMoves(playerChar);
+        while (mask != 0) {
+            int sq = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+            moves.add(new Point(Bitboard.row(sq), Bitboard.col(sq)));
         }
         return moves;
     }
 
     private void triggerAIMoveWithDelay() {
         playerTurn = false;
+        boardChanged();
+        aiThinking = true;
+        aiProgress = "";
         updateStatus();
 
-        new Timer(500, e -> {
-            ((Timer) e.getSource()).stop();
-            if (hasValidMove(AI)) {
-                pushUndo();
-                int[] best = AIMove(aiDepth);
-                if (best != null) {
-                    int r = best[0], c = best[1];
-                    lastMove = new Point(r, c);
-                    getMove(r, c, AI);
+        int generation = ++aiGeneration;
+        aiTimer = new Timer(500, e -> startAISearch(generation));
+        aiTimer.setRepeats(false);
+        aiTimer.start();
+    }
+
+    // Runs on the EDT: hands the current position to the AI thread
+    private void startAISearch(int generation) {
+        if (generation != aiGeneration)
+            return;
+        if (!hasValidMove(AI)) {
+            finishAITurn();
+            return;
+        }
+        int booked = bookMove();
+        if (booked != Position.PASS) {
+            applyAIMove(generation, booked, lastAIDepth);
+            return;
+        }
+        long black = game.discs(Position.BLACK), white = game.discs(Position.WHITE);
+        Engine aiEngine = engine;
+        aiSearch = aiExecutor.submit(() -> {
+            aiEngine.setListener((depth, move, score, nodes) -> SwingUtilities.invokeLater(
+                    () -> showAIProgress(generation, depth, move, score, nodes)));
+            SearchResult result = aiEngine.search(black, white, AI_COLOR, aiDepth, aiTimeMillis);
+            aiEngine.setListener(null);
+            String stats = result.fromBook() ? "book" : formatStats(aiEngine.stats());
+            SwingUtilities.invokeLater(() -> {
+                if (generation == aiGeneration)
+                    searchStats = stats;
+                applyAIMove(generation, result.move(), result.depth());
+            });
+        });
+    }
+
+    // Short enough to share the status bar with the disc counts
+    private static String formatStats(SearchStats s) {
+        if (!SearchStats.ENABLED)
+            return "";
+        String depth = s.completedDepth() >= Search.MAX_DEPTH ? "solved" : "d" + s.completedDepth();
+        return String.format("%s  %,d knps  cut1 %.0f%%  tt %.0f%%  %d ms", depth, s.nodesPerSecond() / 1000,
+                100 * s.firstMoveCutoffRate(), 100 * s.tableHitRate(), s.nanos() / 1_000_000);
+    }
+
+    public void setShowSearchStats(boolean show) {
+        showSearchStats = show;
+        updateStatus();
+    }
+
+    private void showAIProgress(int generation, int depth, int move, int score, long nodes) {
+        if (generation != aiGeneration)
+            return;
+        String reached = depth >= Search.MAX_DEPTH ? "solved" : "depth " + depth;
+        aiProgress = String.format("  %s, best %s (%d), %,d nodes", reached, Bitboard.name(move), score, nodes);
+        updateStatus();
+    }
+
+    private void applyAIMove(int generation, int sq, int depth) {
+        if (generation != aiGeneration)
+            return;
+        lastAIDepth = depth;
+        if (sq != Position.PASS) {
+            int r = Bitboard.row(sq), c = Bitboard.col(sq);
+            lastMove = new Point(r, c);
+            getMove(r, c, AI);
+            boardChanged();
+        }
+        finishAITurn();
+    }
+
+    private void finishAITurn() {
+        aiThinking = false;
+        aiSearch = null;
+        if (!hasValidMove(PLAYER) && !hasValidMove(AI)) {
+            if (onWin != null)
+                onWin.run();
+        } else {
+            playerTurn = true;
+            boardChanged();
+            if (ponder || analysis)
+                startPondering();
+        }
+
+        updateStatus();
+    }
+
+    // Searches the AI's answer to each of the player's replies, one depth at a time across all
+    // replies, so every reply has some answer early and the likely ones are refined as time allows.
+    // Everything the searches learn also stays in the shared transposition table. With analysis on
+    // the same searches give the player's score for each reply, and they go on past the AI's depth
+    // until the player moves or every reply is solved; a reply after which the AI must pass is
+    // then searched for the player, who moves again.
+    private void startPondering() {
+        stopPondering();
+        long replies = legalMoves(PLAYER);
+        if (replies == 0)
+            return;
+        Arrays.fill(ponderDepth, 0);
+        int generation = ponderGeneration;
+        int target = aiTimeMillis > 0 ? Math.max(1, lastAIDepth) : aiDepth;
+        ponderTarget = target;
+        boolean analyse = analysis;
+        int deepest = analyse ? Search.MAX_DEPTH : target;
+        Position start = game.position();
+        Engine ponderEngine = engine;
+        ponderTask = aiExecutor.submit(() -> {
+            // One table generation for the whole session, so the replies' searches do not age
+            // out what the AI's own search and each other stored
+            ponderEngine.beginSeries();
+            Position position = new Position(start.discs(Position.BLACK), start.discs(Position.WHITE), PLAYER_COLOR);
+            // An endgame solve finishes every depth at once
+            int[] reached = new int[Bitboard.SQUARES];
+            for (int depth = 1; depth <= deepest; depth++) {
+                for (long m = replies; m != 0; m &= m - 1) {
+                    int reply = Long.numberOfTrailingZeros(m);
+                    if (reached[reply] >= depth)
+                        continue;
+                    position.makeMove(reply);
+                    boolean aiCanMove = position.legalMoves() != 0;
+                    boolean over = !aiCanMove && !Bitboard.hasMove(position.opp(), position.own());
+                    // For a finished game: the player's disc difference, empty squares to the winner
+                    int margin = Bitboard.count(position.opp()) - Bitboard.count(position.own());
+                    int finalScore = margin + Integer.signum(margin) * position.empties();
+                    long black = position.discs(Position.BLACK), white = position.discs(Position.WHITE);
+                    position.undoMove();
+                    if (!aiCanMove && !analyse)
+                        continue;
+                    if (over) {
+                        reached[reply] = Search.MAX_DEPTH;
+                        SwingUtilities.invokeLater(() -> recordAnalysis(generation, reply, finalScore, true, "final"));
+                        continue;
+                    }
+                    SearchResult result = ponderEngine.searchInSeries(black, white, aiCanMove ? AI_COLOR : PLAYER_COLOR, depth);
+                    // A book answer is as good as any depth (and is what a click would play anyway)
+                    int searched = result.fromBook() ? Search.MAX_DEPTH : result.depth();
+                    if (Thread.currentThread().isInterrupted() || searched < depth)
+                        return;
+                    int answer = result.move();
+                    reached[reply] = searched;
+                    if (aiCanMove)
+                        SwingUtilities.invokeLater(() -> recordPonder(generation, reply, answer, searched));
+                    if (analyse) {
+                        double score = ponderEngine.discScore(result.score(), result.solved());
+                        double forPlayer = aiCanMove ? -score : score;
+                        boolean exact = result.solved();
+                        // The player's move is the first ply
+                        String reachedText = result.fromBook() ? "book" : exact ? "exact" : "depth " + (searched + 1);
+                        SwingUtilities.invokeLater(() -> recordAnalysis(generation, reply, forPlayer, exact, reachedText));
+                    }
                 }
-                repaint();
             }
+        });
+    }
 
-            if (!hasValidMove(PLAYER) && !hasValidMove(AI)) {
-                if (onWin != null)
-                    onWin.run();
-            } else {
-                playerTurn = true;
-                legalMoves = computeLegalMovesFor(PLAYER);
-                repaint();
-            }
+    private void recordPonder(int generation, int reply, int answer, int depth) {
+        if (generation != ponderGeneration)
+            return;
+        ponderMove[reply] = answer;
+        ponderDepth[reply] = depth;
+    }
+
+    // Shows a score that arrived for one of the player's moves and, if it changed which move is
+    // best, moves the highlight
+    private void recordAnalysis(int generation, int move, double score, boolean exact, String reached) {
+        if (generation != ponderGeneration)
+            return;
+        analysisScore[move] = score;
+        analysisText[move] = exact ? String.format("%+d", Math.round(score)) : String.format("%+.1f", score);
+        analysisDepth[move] = reached;
+        shownAnalysis |= 1L << move;
+        int best = -1;
+        for (long m = shownAnalysis; m != 0; m &= m - 1) {
+            int sq = Long.numberOfTrailingZeros(m);
+            if (best < 0 || analysisScore[sq] > analysisScore[best])
+                best = sq;
+        }
+        long dirty = 1L << move;
+        if (best != bestAnalysed) {
+            if (bestAnalysed >= 0)
+                dirty |= 1L << bestAnalysed;
+            dirty |= 1L << best;
+            bestAnalysed = best;
+        }
+        repaintSquares(dirty);
+    }
+
+    // Takes the analysis off the board
+    private void clearAnalysis() {
+        long shown = shownAnalysis;
+        shownAnalysis = 0;
+        bestAnalysed = -1;
+        repaintSquares(shown);
+    }
+
+    // Starts pondering afresh on the player's turn if pondering or analysis is on, otherwise stops it
+    private void restartPondering() {
+        if (playerTurn && !aiThinking && (ponder || analysis))
+            startPondering();
+        else
+            stopPondering();
+    }
+
+    // Stops pondering. Returns the AI's pondered answer to 'reply' if it was searched as deep as a
+    // normal move would be, otherwise Position.PASS (the normal search then starts with a warm table).
+    private int takePonderedAnswer(int reply) {
+        boolean ready = ponderTask != null && ponderDepth[reply] >= ponderTarget;
+        int answer = ponderMove[reply];
+        stopPondering();
+        return ready ? answer : Position.PASS;
+    }
+
+    private void stopPondering() {
+        ponderGeneration++;
+        if (ponderTask != null) {
+            ponderTask.cancel(true);
+            ponderTask = null;
+        }
+        clearAnalysis();
+    }
 
-            updateStatus();
-        }).start();
+    // Plays an answer that needs no search (from the book or from pondering)
+    private void playInstantMove(int sq) {
+        playerTurn = false;
+        boardChanged();
+        aiThinking = true;
+        aiProgress = "";
+        int generation = ++aiGeneration;
+        SwingUtilities.invokeLater(() -> applyAIMove(generation, sq, ponderTarget));
+    }
+
+    // Abandons the AI's turn: a pending search is interrupted and its result ignored
+    private void cancelAISearch() {
+        aiGeneration++;
+        if (aiTimer != null) {
+            aiTimer.stop();
+            aiTimer = null;
+        }
+        if (aiSearch != null) {
+            aiSearch.cancel(true);
+            aiSearch = null;
+        }
+        aiThinking = false;
     }
-}   
+}
@@ -1,6 +1,9 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 public class OthelloMenu extends JPanel {
     private JFrame frame;
@@ -12,12 +15,13 @@ public class OthelloMenu extends JPanel {
         setPreferredSize(new Dimension(800, 800));
         setLayout(null);
 
-        // Prompt the user for AI depth (integer >= 2)
+        // Prompt the user for AI depth (integer >= 1) or a time per move ("500ms")
         Integer depth = null;
+        long timeMillis = 0;
         while (depth == null) {
             String input = JOptionPane.showInputDialog(
                 frame,
-                "Enter AI search depth (integer ≥ 1):",
+                "Enter AI search depth (integer ≥ 1), or time per move (e.g. 500ms):",
                 "Choose Depth",
                 JOptionPane.QUESTION_MESSAGE
             );
@@ -26,7 +30,23 @@ public class OthelloMenu extends JPanel {
                 System.exit(0);
             }
             try {
-                int d = Integer.parseInt(input.trim());
+                input = input.trim();
+                if (input.endsWith("ms")) {
+                    long ms = Long.parseLong(input.substring(0, input.length() - 2).trim());
+                    if (ms >= 1) {
+                        timeMillis = ms;
+                        depth = 1; // unused while searching by time
+                    } else {
+                        JOptionPane.showMessageDialog(
+                            frame,
+                            "Please enter a time of at least 1ms.",
+                            "Invalid Input",
+                            JOptionPane.ERROR_MESSAGE
+                        );
+                    }
+                    continue;
+                }
+                int d = Integer.parseInt(input);
                 if (d >= 1) {
                     depth = d;
                 } else {
@@ -54,6 +74,7 @@ public class OthelloMenu extends JPanel {
 
         // Create the game panel with chosen depth
         gamePanel = new Othello(depth);
+        gamePanel.setAITime(timeMillis);
         gamePanel.setStatusBar(statusBar);
         gamePanel.setOnPass(() -> JOptionPane.showMessageDialog(
             frame,
@@ -62,12 +83,8 @@ public class OthelloMenu extends JPanel {
             JOptionPane.INFORMATION_MESSAGE
         ));
         gamePanel.setOnWin(() -> {
-            int pCount = 0, aCount = 0;
-            for (int r = 0; r < gamePanel.GRID_SIZE; r++)
-                for (int c = 0; c < gamePanel.GRID_SIZE; c++) {
-                    if (gamePanel.board[r][c] == gamePanel.PLAYER) pCount++;
-                    else if (gamePanel.board[r][c] == gamePanel.AI) aCount++;
-                }
+            int pCount = gamePanel.countDiscs(gamePanel.PLAYER);
+            int aCount = gamePanel.countDiscs(gamePanel.AI);
             String msg;
             if (aCount > pCount)
                 msg = "AI (⚪) wins!  Score: ⚪ " + aCount + " – ⚫ " + pCount;
@@ -83,9 +100,19 @@ public class OthelloMenu extends JPanel {
         JButton undoBtn = new JButton("Undo");
         JButton redoBtn = new JButton("Redo");
         JButton restartBtn = new JButton("Restart");
+        JButton saveBtn = new JButton("Save");
+        JButton loadBtn = new JButton("Load");
+        JCheckBox ponderBox = new JCheckBox("Ponder", true);
+        JCheckBox analysisBox = new JCheckBox("Analysis", false);
+        JCheckBox statsBox = new JCheckBox("Search stats", false);
 
         undoBtn.addActionListener(e -> gamePanel.undoMove());
         redoBtn.addActionListener(e -> gamePanel.redoMove());
+        ponderBox.addActionListener(e -> gamePanel.setPonder(ponderBox.isSelected()));
+        analysisBox.addActionListener(e -> gamePanel.setAnalysis(analysisBox.isSelected()));
+        statsBox.addActionListener(e -> gamePanel.setShowSearchStats(statsBox.isSelected()));
+        saveBtn.addActionListener(e -> saveGame());
+        loadBtn.addActionListener(e -> loadGame());
         restartBtn.addActionListener(e -> {
             frame.getContentPane().removeAll();
             frame.getContentPane().add(new OthelloMenu(frame));
@@ -96,6 +123,11 @@ public class OthelloMenu extends JPanel {
         controls.add(undoBtn);
         controls.add(redoBtn);
         controls.add(restartBtn);
+        controls.add(saveBtn);
+        controls.add(loadBtn);
+        controls.add(ponderBox);
+        controls.add(analysisBox);
+        controls.add(statsBox);
 
         // Lay out everything in the frame
         frame.getContentPane().setLayout(new BorderLayout());
@@ -111,6 +143,31 @@ public class OthelloMenu extends JPanel {
         frame.setVisible(true);
     }
 
+    // Game records are GGF text, which NBoard and other programs open too
+    private void saveGame() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION)
+            return;
+        try {
+            Files.writeString(chooser.getSelectedFile().toPath(), gamePanel.exportGame() + "\n", StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(frame, "Could not save the game: " + e.getMessage(), "Save",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void loadGame() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION)
+            return;
+        try {
+            gamePanel.importGame(Files.readString(chooser.getSelectedFile().toPath(), StandardCharsets.US_ASCII));
+        } catch (IOException | IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(frame, "Could not load the game: " + e.getMessage(), "Load",
+                    JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     @Override
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
@@ -0,0 +1,182 @@
+package engine;
+
+// Bitboard helpers: one long per side, bit (r * 8 + c) set when that square holds a disc.
+public final class Bitboard {
+
+    public static final int SIZE = 8;
+    public static final int SQUARES = 64;
+
+    // Everything but the A and H files. Horizontal and diagonal runs of discs are masked with it
+    // so that shifted bits cannot wrap from one row into the next.
+    static final long INNER_FILES = 0x7E7E7E7E7E7E7E7EL;
+
+    private Bitboard() {
+    }
+
+    public static int square(int r, int c) {
+        return r * SIZE + c;
+    }
+
+    public static int row(int sq) {
+        return sq >>> 3;
+    }
+
+    public static int col(int sq) {
+        return sq & 7;
+    }
+
+    // Board coordinates such as "d3": column letter, then row number; "pass" for Position.PASS
+    public static String name(int sq) {
+        if (sq == Position.PASS)
+            return "pass";
+        return "" + (char) ('a' + col(sq)) + (char) ('1' + row(sq));
+    }
+
+    public static long bit(int r, int c) {
+        return 1L << square(r, c);
+    }
+
+    public static int count(long discs) {
+        return Long.bitCount(discs);
+    }
+
+    // All squares where 'own' may play against 'opp'
+    public static long legalMoves(long own, long opp) {
+        long empty = ~(own | opp);
+        long inner = opp & INNER_FILES;
+        long moves = 0;
+        long x;
+
+        // East
+        x = (own << 1) & inner;
+        x |= (x << 1) & inner; x |= (x << 1) & inner;
+        x |= (x << 1) & inner; x |= (x << 1) & inner; x |= (x << 1) & inner;
+        moves |= (x << 1) & empty;
+        // West
+        x = (own >>> 1) & inner;
+        x |= (x >>> 1) & inner; x |= (x >>> 1) & inner;
+        x |= (x >>> 1) & inner; x |= (x >>> 1) & inner; x |= (x >>> 1) & inner;
+        moves |= (x >>> 1) & empty;
+        // South
+        x = (own << 8) & opp;
+        x |= (x << 8) & opp; x |= (x << 8) & opp;
+        x |= (x << 8) & opp; x |= (x << 8) & opp; x |= (x << 8) & opp;
+        moves |= (x << 8) & empty;
+        // North
+        x = (own >>> 8) & opp;
+        x |= (x >>> 8) & opp; x |= (x >>> 8) & opp;
+        x |= (x >>> 8) & opp; x |= (x >>> 8) & opp; x |= (x >>> 8) & opp;
+        moves |= (x >>> 8) & empty;
+        // South-east
+        x = (own << 9) & inner;
+        x |= (x << 9) & inner; x |= (x << 9) & inner;
+        x |= (x << 9) & inner; x |= (x << 9) & inner; x |= (x << 9) & inner;
+        moves |= (x << 9) & empty;
+        // South-west
+        x = (own << 7) & inner;
+        x |= (x << 7) & inner; x |= (x << 7) & inner;
+        x |= (x << 7) & inner; x |= (x << 7) & inner; x |= (x << 7) & inner;
+        moves |= (x << 7) & empty;
+        // North-east
+        x = (own >>> 7) & inner;
+        x |= (x >>> 7) & inner; x |= (x >>> 7) & inner;
+        x |= (x >>> 7) & inner; x |= (x >>> 7) & inner; x |= (x >>> 7) & inner;
+        moves |= (x >>> 7) & empty;
+        // North-west
+        x = (own >>> 9) & inner;
+        x |= (x >>> 9) & inner; x |= (x >>> 9) & inner;
+        x |= (x >>> 9) & inner; x |= (x >>> 9) & inner; x |= (x >>> 9) & inner;
+        moves |= (x >>> 9) & empty;
+
+        return moves;
+    }
+
+    // The eight symmetries of the board. Bit 0 transposes rows and columns, bit 1 mirrors the
+    // columns and bit 2 mirrors the rows, applied in that order.
+    public static final int SYMMETRIES = 8;
+
+    public static long transform(long b, int symmetry) {
+        if ((symmetry & 1) != 0)
+            b = transpose(b);
+        if ((symmetry & 2) != 0)
+            b = mirrorColumns(b);
+        if ((symmetry & 4) != 0)
+            b = Long.reverseBytes(b);
+        return b;
+    }
+
+    // Square (r, c) goes to (c, r)
+    static long transpose(long b) {
+        long t;
+        t = 0x0F0F0F0F00000000L & (b ^ (b << 28));
+        b ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (b ^ (b << 14));
+        b ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (b ^ (b << 7));
+        b ^= t ^ (t >>> 7);
+        return b;
+    }
+
+    // Square (r, c) goes to (r, 7 - c)
+    static long mirrorColumns(long b) {
+        b = ((b >>> 1) & 0x5555555555555555L) | ((b & 0x5555555555555555L) << 1);
+        b = ((b >>> 2) & 0x3333333333333333L) | ((b & 0x3333333333333333L) << 2);
+        b = ((b >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((b & 0x0F0F0F0F0F0F0F0FL) << 4);
+        return b;
+    }
+
+    public static boolean hasMove(long own, long opp) {
+        return legalMoves(own, opp) != 0;
+    }
+
+    // Discs of 'opp' that turn over when 'own' plays on sq (0 if the move flips nothing)
+    public static long flips(long own, long opp, int sq) {
+        long move = 1L << sq;
+        long inner = opp & INNER_FILES;
+        long flipped = 0;
+        long x;
+
+        // East
+        x = (move << 1) & inner;
+        x |= (x << 1) & inner; x |= (x << 1) & inner;
+        x |= (x << 1) & inner; x |= (x << 1) & inner; x |= (x << 1) & inner;
+        if (((x << 1) & own) != 0) flipped |= x;
+        // West
+        x = (move >>> 1) & inner;
+        x |= (x >>> 1) & inner; x |= (x >>> 1) & inner;
+        x |= (x >>> 1) & inner; x |= (x >>> 1) & inner; x |= (x >>> 1) & inner;
+        if (((x >>> 1) & own) != 0) flipped |= x;
+        // South
+        x = (move << 8) & opp;
+        x |= (x << 8) & opp; x |= (x << 8) & opp;
+        x |= (x << 8) & opp; x |= (x << 8) & opp; x |= (x << 8) & opp;
+        if (((x << 8) & own) != 0) flipped |= x;
+        // North
+        x = (move >>> 8) & opp;
+        x |= (x >>> 8) & opp; x |= (x >>> 8) & opp;
+        x |= (x >>> 8) & opp; x |= (x >>> 8) & opp; x |= (x >>> 8) & opp;
+        if (((x >>> 8) & own) != 0) flipped |= x;
+        // South-east
+        x = (move << 9) & inner;
+        x |= (x << 9) & inner; x |= (x << 9) & inner;
+        x |= (x << 9) & inner; x |= (x << 9) & inner; x |= (x << 9) & inner;
+        if (((x << 9) & own) != 0) flipped |= x;
+        // South-west
+        x = (move << 7) & inner;
+        x |= (x << 7) & inner; x |= (x << 7) & inner;
+        x |= (x << 7) & inner; x |= (x << 7) & inner; x |= (x << 7) & inner;
+        if (((x << 7) & own) != 0) flipped |= x;
+        // North-east
+        x = (move >>> 7) & inner;
+        x |= (x >>> 7) & inner; x |= (x >>> 7) & inner;
+        x |= (x >>> 7) & inner; x |= (x >>> 7) & inner; x |= (x >>> 7) & inner;
+        if (((x >>> 7) & own) != 0) flipped |= x;
+        // North-west
+        x = (move >>> 9) & inner;
+        x |= (x >>> 9) & inner; x |= (x >>> 9) & inner;
+        x |= (x >>> 9) & inner; x |= (x >>> 9) & inner; x |= (x >>> 9) & inner;
+        if (((x >>> 9) & own) != 0) flipped |= x;
+
+        return flipped;
+    }
+}
@@ -0,0 +1,259 @@
+package engine;
+
+// Headless engine: a search, its settings and an optional opening book, with no AWT or Swing
+// anywhere, for GUIs, servers and batch tools alike. Creating one is cheap: the search and its
+// table are only allocated by the first search, and engines that run side by side can share one
+// TranspositionTable (it is safe for concurrent use) instead of holding one each.
+//
+// One search runs at a time per engine; stop() may be called from any thread.
+public final class Engine {
+
+    public static final int DEFAULT_HASH_MB = 16;
+    // Rough value of one disc to Search.POSITIONAL_EVAL, whose square weights run from -50 to 100
+    private static final int POSITIONAL_DISC_VALUE = 10;
+
+    private final int threads;
+    private final int hashMB;
+    private TranspositionTable table;
+    private volatile ParallelSearch search;
+    // A stop() also holds for a search made after it (the first one, or one after shutdown())
+    private volatile boolean stopRequested;
+
+    private int evaluation = Search.PATTERN_EVAL;
+    private double selectivity = ProbCut.DEFAULT_THRESHOLD;
+    private int endgameEmpties = EndgameSolver.DEFAULT_EMPTIES;
+    private int endgameTableMB = EndgameSolver.DEFAULT_TABLE_MB;
+    private SearchListener listener;
+    private OpeningBook book;
+
+    // One thread and a table of its own
+    public Engine() {
+        this(1, DEFAULT_HASH_MB);
+    }
+
+    // 'threads' search threads sharing a table of 'hashMB' megabytes
+    public Engine(int threads, int hashMB) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        this.threads = threads;
+        this.hashMB = hashMB;
+    }
+
+    // 'threads' search threads using 'table', which may be shared with other engines or null
+    public Engine(int threads, TranspositionTable table) {
+        this(threads, 0);
+        this.table = table;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    // The engine's table, allocated now if no search has needed it yet; null if it has none
+    public TranspositionTable transpositionTable() {
+        if (table == null && hashMB > 0)
+            table = new TranspositionTable(hashMB);
+        return table;
+    }
+
+    // Search.DISC_EVAL, POSITIONAL_EVAL or PATTERN_EVAL. Engines sharing a table must agree on it:
+    // changing it clears the table.
+    public void setEvaluation(int evaluation) {
+        if (evaluation != Search.DISC_EVAL && evaluation != Search.POSITIONAL_EVAL
+                && evaluation != Search.PATTERN_EVAL)
+            throw new IllegalArgumentException("unknown evaluation: " + evaluation);
+        this.evaluation = evaluation;
+        if (search != null)
+            search.setEvaluation(evaluation);
+    }
+
+    public int evaluation() {
+        return evaluation;
+    }
+
+    // Multi-ProbCut's threshold in standard deviations, or Search.FULL_WIDTH; see
+    // Search.setSelectivity
+    public void setSelectivity(double threshold) {
+        if (threshold < 0)
+            throw new IllegalArgumentException("negative threshold: " + threshold);
+        this.selectivity = threshold;
+        if (search != null)
+            search.setSelectivity(threshold);
+    }
+
+    public double selectivity() {
+        return selectivity;
+    }
+
+    // Empty squares at which the engine plays the game out exactly; 0 never does
+    public void setEndgameEmpties(int empties) {
+        this.endgameEmpties = empties;
+        if (search != null)
+            search.setEndgameEmpties(empties);
+    }
+
+    public int endgameEmpties() {
+        return endgameEmpties;
+    }
+
+    // Size of the endgame solver's table, allocated the first time a position is solved
+    public void setEndgameTableMB(int megabytes) {
+        this.endgameTableMB = megabytes;
+        if (search != null)
+            search.setEndgameTableMB(megabytes);
+    }
+
+    // Told about every finished iteration, on the searching thread; may be null
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+        if (search != null)
+            search.setListener(listener);
+    }
+
+    // Book consulted before every search; null for none
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    public OpeningBook openingBook() {
+        return book;
+    }
+
+    public SearchResult search(Game game, int depth) {
+        return search(game.discs(Position.BLACK), game.discs(Position.WHITE), game.sideToMove(), depth, 0);
+    }
+
+    public SearchResult searchInTime(Game game, long millis) {
+        return search(game.discs(Position.BLACK), game.discs(Position.WHITE), game.sideToMove(), Search.MAX_DEPTH, millis);
+    }
+
+    // Best move for 'side' from the book if it has one, otherwise searched to 'depth' plies, or
+    // for 'millis' milliseconds when that is above 0
+    public SearchResult search(long black, long white, int side, int depth, long millis) {
+        return search(black, white, side, depth, millis, false);
+    }
+
+    // Starts a series of searches for searchInSeries, such as the ones pondering makes for every
+    // reply to a move: the table's entries age once for the whole series instead of per search
+    public void beginSeries() {
+        TranspositionTable t = transpositionTable();
+        if (t != null)
+            t.newSearch();
+    }
+
+    // search() to 'depth' plies as part of the series begun by the last beginSeries()
+    public SearchResult searchInSeries(long black, long white, int side, int depth) {
+        return search(black, white, side, depth, 0, true);
+    }
+
+    private SearchResult search(long black, long white, int side, int depth, long millis, boolean inSeries) {
+        long start = System.nanoTime();
+        long entry = bookEntry(black, white, side);
+        if (entry != 0) {
+            int move = OpeningBook.move(entry);
+            return new SearchResult(move, OpeningBook.score(entry), OpeningBook.depth(entry), new int[] { move },
+                    0, elapsedMillis(start), true);
+        }
+        ParallelSearch s = search();
+        s.setPosition(black, white, side);
+        int move = inSeries ? s.bestMoveInSeries(depth) : millis > 0 ? s.bestMoveInTime(millis) : s.bestMove(depth);
+        return new SearchResult(move, s.bestScore(), s.completedDepth(), s.principalVariation(move, s.completedDepth()), s.nodes(),
+                elapsedMillis(start), false);
+    }
+
+    // Nodes searched so far by all threads, for a listener: see ParallelSearch.searchedNodes
+    public long searchedNodes() {
+        return search().searchedNodes();
+    }
+
+    // What the last search did; a move from the book leaves it alone
+    public SearchStats stats() {
+        ParallelSearch s = search;
+        return s != null ? s.stats() : new SearchStats();
+    }
+
+    // See Search.principalVariation: for a listener, which is called with the search at the root
+    public int[] principalVariation(int move, int depth) {
+        return search().principalVariation(move, depth);
+    }
+
+    // A score of this engine's evaluation in discs, for display: exact for a solved position,
+    // +-64 for a won or lost game, an estimate otherwise
+    public double discScore(int score, boolean solved) {
+        if (solved)
+            return score;
+        int win = evaluation == Search.DISC_EVAL ? Search.WIN_SCORE : Search.POSITIONAL_WIN_SCORE;
+        if (Math.abs(score) >= win)
+            return Math.signum(score) * 64;
+        switch (evaluation) {
+            case Search.PATTERN_EVAL:
+                return (double) score / PatternEvaluator.DISC_VALUE;
+            case Search.POSITIONAL_EVAL:
+                return (double) score / POSITIONAL_DISC_VALUE;
+            default:
+                return score;
+        }
+    }
+
+    // The book's move for 'side', or Position.PASS if the position is not in the book
+    public int bookMove(long black, long white, int side) {
+        long entry = bookEntry(black, white, side);
+        return entry != 0 ? OpeningBook.move(entry) : Position.PASS;
+    }
+
+    // Asks the running search to return what it has. The request also stops a search that is
+    // about to start, until clearStop(); a caller that takes stops from another thread clears
+    // them before it tells that thread it is searching.
+    public void stop() {
+        stopRequested = true;
+        ParallelSearch s = search;
+        if (s != null)
+            s.stop();
+    }
+
+    public void clearStop() {
+        stopRequested = false;
+        ParallelSearch s = search;
+        if (s != null)
+            s.clearStop();
+    }
+
+    // Releases the search's helper threads; the engine can still search afterwards, on new ones
+    public void shutdown() {
+        ParallelSearch s = search;
+        search = null;
+        if (s != null)
+            s.shutdown();
+    }
+
+    private long bookEntry(long black, long white, int side) {
+        if (book == null)
+            return 0;
+        long entry = book.probe(black, white, side);
+        if (entry == 0)
+            return 0;
+        // A book built for other rules (or a hash collision) must not make an illegal move
+        long own = side == Position.BLACK ? black : white, opp = side == Position.BLACK ? white : black;
+        return (Bitboard.legalMoves(own, opp) & (1L << OpeningBook.move(entry))) != 0 ? entry : 0;
+    }
+
+    private ParallelSearch search() {
+        ParallelSearch s = search;
+        if (s == null) {
+            s = new ParallelSearch(threads, transpositionTable());
+            s.setEvaluation(evaluation);
+            s.setEndgameEmpties(endgameEmpties);
+            s.setSelectivity(selectivity);
+            s.setEndgameTableMB(endgameTableMB);
+            s.setListener(listener);
+            search = s;
+            if (stopRequested)
+                s.stop();
+        }
+        return s;
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
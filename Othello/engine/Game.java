@@ -0,0 +1,89 @@
+package engine;
+
+// A game in progress: the current position plus the rules around it (whose turn it is, when a
+// side has to pass, when the game is over and who won). Moves are squares; Position.PASS is a
+// move too, legal exactly when the side to move has no other.
+public final class Game {
+
+    // winner() of a drawn game
+    public static final int DRAW = -1;
+
+    private final Position position = new Position();
+
+    // The standard starting position, black to move
+    public Game() {
+    }
+
+    public Game(long black, long white, int side) {
+        set(black, white, side);
+    }
+
+    public void reset() {
+        position.reset();
+    }
+
+    public void set(long black, long white, int side) {
+        if ((black & white) != 0)
+            throw new IllegalArgumentException("black and white discs overlap");
+        if (side != Position.BLACK && side != Position.WHITE)
+            throw new IllegalArgumentException("unknown side: " + side);
+        position.set(black, white, side);
+    }
+
+    public long discs(int color) {
+        return position.discs(color);
+    }
+
+    public int count(int color) {
+        return Bitboard.count(position.discs(color));
+    }
+
+    public int sideToMove() {
+        return position.sideToMove();
+    }
+
+    // Legal squares for the side to move
+    public long legalMoves() {
+        return position.legalMoves();
+    }
+
+    public boolean isLegal(int move) {
+        long moves = position.legalMoves();
+        if (move == Position.PASS)
+            return moves == 0 && !isOver();
+        return move >= 0 && move < Bitboard.SQUARES && (moves & (1L << move)) != 0;
+    }
+
+    // The side to move has no square to play but the game goes on
+    public boolean mustPass() {
+        return position.legalMoves() == 0 && !isOver();
+    }
+
+    // Neither side can move (which includes a full board)
+    public boolean isOver() {
+        long own = position.own(), opp = position.opp();
+        return Bitboard.legalMoves(own, opp) == 0 && Bitboard.legalMoves(opp, own) == 0;
+    }
+
+    // Plays 'move' (a square, or Position.PASS) for the side to move
+    public void play(int move) {
+        if (!isLegal(move))
+            throw new IllegalArgumentException("illegal move: "
+                    + (move >= 0 && move <= Position.PASS ? Bitboard.name(move) : String.valueOf(move)));
+        if (move == Position.PASS)
+            position.makePass();
+        else
+            position.makeMove(move);
+    }
+
+    // Position.BLACK, Position.WHITE or DRAW by disc count; meaningful once isOver()
+    public int winner() {
+        int black = count(Position.BLACK), white = count(Position.WHITE);
+        return black > white ? Position.BLACK : white > black ? Position.WHITE : DRAW;
+    }
+
+    // A copy of the current position to search or analyse
+    public Position position() {
+        return new Position(position.discs(Position.BLACK), position.discs(Position.WHITE), position.sideToMove());
+    }
+}
@@ -0,0 +1,33 @@
+package engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One finished iteration of iterative deepening, for Flight Recorder; see SearchEvent
+@Name("othello.SearchIteration")
+@Label("Search Iteration")
+@Category("Othello")
+@Description("One iteration of iterative deepening")
+@StackTrace(false)
+final class IterationEvent extends Event {
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Best Move")
+    String bestMove;
+
+    @Label("Score")
+    int score;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Re-searched")
+    @Description("The aspiration window failed and the iteration ran again with a full window")
+    boolean researched;
+}
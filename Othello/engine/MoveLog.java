@@ -0,0 +1,229 @@
+package engine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// The history of a game: its starting position and every move since, one byte each (the square,
+// or Position.PASS), with a cursor for undo and redo. Moves after the cursor are the ones that
+// were taken back; playing a new move drops them. Every CHECKPOINT_INTERVAL plies the position is
+// kept too, so going to any ply replays at most that many moves, however long the game.
+//
+// Game records go out and come back in two forms: GGF text, which NBoard and other programs
+// read, and toBytes(), the starting position followed by the move bytes.
+public final class MoveLog {
+
+    public static final int CHECKPOINT_INTERVAL = 16;
+    // Board of a GGF record: "BO[8 <64 squares, a1 first> <side>]"; moves are B[f5] and W[d6]
+    private static final Pattern GGF_TAG = Pattern.compile("([A-Z]+)\\[([^\\]]*)\\]");
+    private static final int HEADER_BYTES = 2 * Long.BYTES + 1;
+
+    private byte[] moves = new byte[Position.MAX_PLY];
+    private int length;
+    private int ply;
+    // Position after k * CHECKPOINT_INTERVAL plies, for every checkpoint up to 'length'
+    private long[] checkpoints = new long[3 * (Position.MAX_PLY / CHECKPOINT_INTERVAL + 1)];
+    private final Game current = new Game();
+
+    // The standard starting position, black to move
+    public MoveLog() {
+        start(current.discs(Position.BLACK), current.discs(Position.WHITE), current.sideToMove());
+    }
+
+    public MoveLog(long black, long white, int side) {
+        start(black, white, side);
+    }
+
+    // Forgets every move and starts again from the given position
+    public void start(long black, long white, int side) {
+        current.set(black, white, side);
+        length = 0;
+        ply = 0;
+        checkpoint(0);
+    }
+
+    // Plays 'move' (a square, or Position.PASS) at the cursor, dropping the moves that were
+    // taken back. Throws IllegalArgumentException if it is not legal.
+    public void play(int move) {
+        current.play(move);
+        if (ply == moves.length)
+            moves = Arrays.copyOf(moves, 2 * moves.length);
+        moves[ply++] = (byte) move;
+        length = ply;
+        if (ply % CHECKPOINT_INTERVAL == 0)
+            checkpoint(ply / CHECKPOINT_INTERVAL);
+    }
+
+    // Moves played before the cursor
+    public int ply() {
+        return ply;
+    }
+
+    // Moves recorded, including those taken back
+    public int length() {
+        return length;
+    }
+
+    // The move played at 'ply' (0 is the first)
+    public int move(int ply) {
+        if (ply < 0 || ply >= length)
+            throw new IndexOutOfBoundsException("no move " + ply + " in a log of " + length);
+        return moves[ply];
+    }
+
+    // The last move before the cursor, or -1 at the start
+    public int lastMove() {
+        return ply == 0 ? -1 : moves[ply - 1];
+    }
+
+    // Moves the cursor to 'ply' (0 to length()), replaying from the checkpoint before it
+    public void seek(int ply) {
+        if (ply < 0 || ply > length)
+            throw new IndexOutOfBoundsException("ply " + ply + " of " + length);
+        if (ply == this.ply)
+            return;
+        if (ply == this.ply + 1) {
+            current.play(moves[this.ply]);
+        } else {
+            int k = ply / CHECKPOINT_INTERVAL;
+            current.set(checkpoints[3 * k], checkpoints[3 * k + 1], (int) checkpoints[3 * k + 2]);
+            for (int i = k * CHECKPOINT_INTERVAL; i < ply; i++)
+                current.play(moves[i]);
+        }
+        this.ply = ply;
+    }
+
+    public boolean canUndo() {
+        return ply > 0;
+    }
+
+    public boolean canRedo() {
+        return ply < length;
+    }
+
+    public void undo() {
+        seek(ply - 1);
+    }
+
+    public void redo() {
+        seek(ply + 1);
+    }
+
+    // The position at the cursor
+    public long discs(int color) {
+        return current.discs(color);
+    }
+
+    public int sideToMove() {
+        return current.sideToMove();
+    }
+
+    // A copy of the position at the cursor
+    public Game game() {
+        return new Game(current.discs(Position.BLACK), current.discs(Position.WHITE), current.sideToMove());
+    }
+
+    // A copy of the position after 'ply' moves; the cursor stays where it is
+    public Game gameAt(int ply) {
+        int at = this.ply;
+        seek(ply);
+        Game game = game();
+        seek(at);
+        return game;
+    }
+
+    private void checkpoint(int k) {
+        if (3 * k + 2 >= checkpoints.length)
+            checkpoints = Arrays.copyOf(checkpoints, 2 * checkpoints.length);
+        checkpoints[3 * k] = current.discs(Position.BLACK);
+        checkpoints[3 * k + 1] = current.discs(Position.WHITE);
+        checkpoints[3 * k + 2] = current.sideToMove();
+    }
+
+    // The whole log, taken-back moves excluded: the starting position, then one byte per move
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + ply);
+        buffer.putLong(checkpoints[0]).putLong(checkpoints[1]).put((byte) checkpoints[2]);
+        buffer.put(moves, 0, ply);
+        return buffer.array();
+    }
+
+    // Reads toBytes(); the cursor ends up after the last move
+    public static MoveLog fromBytes(byte[] bytes) {
+        if (bytes.length < HEADER_BYTES)
+            throw new IllegalArgumentException("not a move log: " + bytes.length + " bytes");
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        MoveLog log = new MoveLog(buffer.getLong(), buffer.getLong(), buffer.get());
+        while (buffer.hasRemaining())
+            log.play(buffer.get());
+        return log;
+    }
+
+    // The game up to the cursor as a GGF record
+    public String toGgf() {
+        StringBuilder sb = new StringBuilder("(;GM[Othello]PC[Othello]TY[8]BO[8 ");
+        long black = checkpoints[0], white = checkpoints[1];
+        for (int sq = 0; sq < Bitboard.SQUARES; sq++)
+            sb.append((black >>> sq & 1) != 0 ? '*' : (white >>> sq & 1) != 0 ? 'O' : '-');
+        sb.append(checkpoints[2] == Position.BLACK ? " *]" : " O]");
+        int side = (int) checkpoints[2];
+        for (int i = 0; i < ply; i++) {
+            sb.append(side == Position.BLACK ? "B[" : "W[");
+            sb.append(moves[i] == Position.PASS ? "PA" : Bitboard.name(moves[i]).toUpperCase(Locale.ROOT)).append(']');
+            side ^= 1;
+        }
+        return sb.append(";)").toString();
+    }
+
+    // Reads a GGF record: the board from BO[], then every B[] and W[] move, which may carry
+    // "/eval/time" after the square. Records do not always spell out passes, so a side moving
+    // out of turn means the other one passed. The cursor ends up after the last move.
+    public static MoveLog fromGgf(String ggf) {
+        Matcher tag = GGF_TAG.matcher(ggf);
+        MoveLog log = null;
+        while (tag.find()) {
+            String name = tag.group(1), value = tag.group(2).trim();
+            if (name.equals("BO")) {
+                log = new MoveLog();
+                readBoard(log, value);
+            } else if ((name.equals("B") || name.equals("W")) && log != null) {
+                int color = name.equals("B") ? Position.BLACK : Position.WHITE;
+                int move = parseMove(value.split("/")[0]);
+                if (move != Position.PASS && log.sideToMove() != color)
+                    log.play(Position.PASS);
+                log.play(move);
+            }
+        }
+        if (log == null)
+            throw new IllegalArgumentException("game record without a board");
+        return log;
+    }
+
+    private static void readBoard(MoveLog log, String board) {
+        String[] parts = board.split("\\s+");
+        if (parts.length < 3 || !parts[0].equals("8") || parts[1].length() != Bitboard.SQUARES)
+            throw new IllegalArgumentException("not an 8x8 board: " + board);
+        long black = 0, white = 0;
+        for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+            char c = parts[1].charAt(sq);
+            if (c == '*' || c == 'X' || c == 'x' || c == 'B')
+                black |= 1L << sq;
+            else if (c == 'O' || c == 'o' || c == 'W')
+                white |= 1L << sq;
+        }
+        char side = parts[2].charAt(0);
+        log.start(black, white, side == 'O' || side == 'o' || side == 'W' ? Position.WHITE : Position.BLACK);
+    }
+
+    // "f5" or "F5", or "PA" / "pass" for a pass
+    public static int parseMove(String text) {
+        String s = text.trim().toLowerCase(Locale.ROOT);
+        if (s.equals("pa") || s.equals("pass"))
+            return Position.PASS;
+        if (s.length() != 2 || s.charAt(0) < 'a' || s.charAt(0) > 'h' || s.charAt(1) < '1' || s.charAt(1) > '8')
+            throw new IllegalArgumentException("not a move: " + text);
+        return Bitboard.square(s.charAt(1) - '1', s.charAt(0) - 'a');
+    }
+}
@@ -0,0 +1,158 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Opening book: entries of (position key, best move, score) sorted by key in a file that is
+// mapped into memory rather than read, so opening a book parses nothing and a lookup is a binary
+// search over the mapping. A position's key is its Zobrist hash in whichever of the 8 board
+// orientations hashes lowest, so each opening is stored once however it was reached; its move is
+// stored in that same orientation and turned back on the way out.
+//
+// File layout (big-endian): "OTHBOOK1", int entry count, int reserved, then per entry long key,
+// short score, byte move, byte search depth.
+public final class OpeningBook {
+
+    public static final String DEFAULT_FILE = "othello.book";
+
+    private static final long MAGIC = 0x4F5448424F4F4B31L;
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 12;
+    // Packed probe results: move in bits 0-7, depth in 8-15, score in the upper 32
+    private static final long VALID = 1L << 16;
+
+    // SQUARE_MAPS[s][sq] is where sq lands under symmetry s; INVERSE[s] undoes s
+    private static final int[][] SQUARE_MAPS = new int[Bitboard.SYMMETRIES][Bitboard.SQUARES];
+    private static final int[] INVERSE = new int[Bitboard.SYMMETRIES];
+
+    static {
+        for (int s = 0; s < Bitboard.SYMMETRIES; s++)
+            for (int sq = 0; sq < Bitboard.SQUARES; sq++)
+                SQUARE_MAPS[s][sq] = Long.numberOfTrailingZeros(Bitboard.transform(1L << sq, s));
+        for (int s = 0; s < Bitboard.SYMMETRIES; s++)
+            for (int t = 0; t < Bitboard.SYMMETRIES; t++)
+                if (undoes(t, s))
+                    INVERSE[s] = t;
+    }
+
+    private static boolean undoes(int t, int s) {
+        for (int sq = 0; sq < Bitboard.SQUARES; sq++)
+            if (SQUARE_MAPS[t][SQUARE_MAPS[s][sq]] != sq)
+                return false;
+        return true;
+    }
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(ByteBuffer entries, int size) {
+        this.entries = entries;
+        this.size = size;
+    }
+
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.limit() < HEADER_BYTES || map.getLong(0) != MAGIC)
+                throw new IOException("not an opening book: " + file);
+            int size = map.getInt(8);
+            if (size < 0 || map.limit() != HEADER_BYTES + (long) size * ENTRY_BYTES)
+                throw new IOException("truncated opening book: " + file);
+            return new OpeningBook(map, size);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Book entry for the position, or 0 if it is not in the book. The move comes back in the
+    // position's own orientation.
+    public long probe(long black, long white, int side) {
+        int symmetry = canonicalSymmetry(black, white, side);
+        long key = Zobrist.hash(Bitboard.transform(black, symmetry), Bitboard.transform(white, symmetry), side);
+        int low = 0, high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int offset = HEADER_BYTES + mid * ENTRY_BYTES;
+            long midKey = entries.getLong(offset);
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                int move = SQUARE_MAPS[INVERSE[symmetry]][entries.get(offset + 10)];
+                return pack(move, entries.getShort(offset + 8), entries.get(offset + 11));
+            }
+        }
+        return 0;
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & 0xFF);
+    }
+
+    public static int depth(long entry) {
+        return (int) ((entry >>> 8) & 0xFF);
+    }
+
+    public static int score(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    // Key under which the position is stored
+    public static long key(long black, long white, int side) {
+        int symmetry = canonicalSymmetry(black, white, side);
+        return Zobrist.hash(Bitboard.transform(black, symmetry), Bitboard.transform(white, symmetry), side);
+    }
+
+    // 'move' turned into the orientation the position is stored in
+    public static int canonicalMove(long black, long white, int side, int move) {
+        return SQUARE_MAPS[canonicalSymmetry(black, white, side)][move];
+    }
+
+    // Writes a book from parallel arrays of keys (from key()), canonical moves, scores and search
+    // depths. Entries are sorted here; keys must be unique.
+    public static void write(Path file, long[] keys, int[] moves, int[] scores, int[] depths) throws IOException {
+        int size = keys.length;
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + size * ENTRY_BYTES).order(ByteOrder.BIG_ENDIAN);
+        out.putLong(MAGIC).putInt(size).putInt(0);
+        for (int i : order) {
+            out.putLong(keys[i]);
+            out.putShort((short) scores[i]);
+            out.put((byte) moves[i]);
+            out.put((byte) depths[i]);
+        }
+        Files.write(file, out.array());
+    }
+
+    private static long pack(int move, int score, int depth) {
+        return ((long) score << 32) | VALID | ((long) depth << 8) | move;
+    }
+
+    // The symmetry under which the position hashes lowest
+    private static int canonicalSymmetry(long black, long white, int side) {
+        int best = 0;
+        long bestHash = Zobrist.hash(black, white, side);
+        for (int s = 1; s < Bitboard.SYMMETRIES; s++) {
+            long hash = Zobrist.hash(Bitboard.transform(black, s), Bitboard.transform(white, s), side);
+            if (hash < bestHash) {
+                bestHash = hash;
+                best = s;
+            }
+        }
+        return best;
+    }
+}
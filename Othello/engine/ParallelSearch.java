@@ -0,0 +1,223 @@
+package engine;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Lazy SMP: every thread runs its own Search on its own Position, and they all share one
+// TranspositionTable. Helper threads deepen without limit and only exist to fill the table;
+// the calling thread's search decides the move and stops the helpers when it is done.
+public final class ParallelSearch {
+
+    private final Search[] searches;
+    private final ExecutorService helpers;
+    private final Future<?>[] running;
+    private final TranspositionTable table;
+    private long nodes;
+    // Whether the helpers take part in the running search, or took part in the last one (they
+    // sit out endgame solves)
+    private boolean helped;
+
+    public ParallelSearch(int threads, TranspositionTable table) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        this.table = table;
+        searches = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new Search(table);
+            searches[i].setRootRotation(i);
+        }
+        running = new Future<?>[threads];
+        helpers = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, r -> {
+            Thread t = new Thread(r, "othello-search-helper");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public int threads() {
+        return searches.length;
+    }
+
+    public TranspositionTable transpositionTable() {
+        return table;
+    }
+
+    public void setPosition(long black, long white, int side) {
+        for (Search search : searches)
+            search.setPosition(black, white, side);
+    }
+
+    // Best move searched to 'depth' plies. With helpers the main thread deepens up to 'depth'
+    // so that it can pick up what the helpers left in the table at each iteration.
+    public int bestMove(int depth) {
+        if (!helps())
+            return collect(searches[0].bestMove(depth), false);
+        return run(1, depth, 0, true);
+    }
+
+    public int bestMoveInTime(long millis) {
+        if (!helps())
+            return collect(searches[0].bestMoveInTime(millis), false);
+        return run(1, Search.MAX_DEPTH, millis, true);
+    }
+
+    // See Search.bestMoveInSeries
+    public int bestMoveInSeries(int depth) {
+        if (!helps())
+            return collect(searches[0].bestMoveInSeries(depth), false);
+        return run(1, depth, 0, false);
+    }
+
+    // Search.DISC_EVAL, POSITIONAL_EVAL or PATTERN_EVAL for every thread. A change clears the
+    // shared table, whose scores belong to the old evaluation.
+    public void setEvaluation(int evaluation) {
+        if (evaluation == searches[0].evaluation())
+            return;
+        for (Search search : searches)
+            search.setEvaluation(evaluation);
+        if (table != null)
+            table.clear();
+    }
+
+    public void setSelectivity(double threshold) {
+        for (Search search : searches)
+            search.setSelectivity(threshold);
+    }
+
+    // The endgame solver runs on the calling thread only; helpers have nothing to add to it
+    public void setEndgameEmpties(int empties) {
+        for (Search search : searches)
+            search.setEndgameEmpties(empties);
+    }
+
+    public void setEndgameTableMB(int megabytes) {
+        searches[0].setEndgameTableMB(megabytes);
+    }
+
+    // Progress of the deciding (calling) thread's search
+    public void setListener(SearchListener listener) {
+        searches[0].setListener(listener);
+    }
+
+    public int bestScore() {
+        return searches[0].bestScore();
+    }
+
+    public int completedDepth() {
+        return searches[0].completedDepth();
+    }
+
+    // Nodes searched by all threads in the last search
+    public long nodes() {
+        return nodes;
+    }
+
+    // Nodes searched so far by all threads in the running search, for a listener's speed readout.
+    // The helpers' counts are read while they search, so they may be a moment behind.
+    public long searchedNodes() {
+        long total = searches[0].nodes();
+        if (helped)
+            for (int i = 1; i < searches.length; i++)
+                total += searches[i].nodes();
+        return total;
+    }
+
+    // What the last search did, counted over all threads; depth and timing are the calling
+    // thread's
+    public SearchStats stats() {
+        SearchStats total = searches[0].stats();
+        if (helped)
+            for (int i = 1; i < searches.length; i++)
+                total.add(searches[i].statsView());
+        return total;
+    }
+
+    // See Search.principalVariation
+    public int[] principalVariation(int move, int depth) {
+        return searches[0].principalVariation(move, depth);
+    }
+
+    // See Search.stop and clearStop
+    public void stop() {
+        for (Search search : searches)
+            search.stop();
+    }
+
+    public void clearStop() {
+        for (Search search : searches)
+            search.clearStop();
+    }
+
+    // Stops the helper threads for good
+    public void shutdown() {
+        if (helpers != null)
+            helpers.shutdownNow();
+    }
+
+    private int run(int firstDepth, int lastDepth, long millis, boolean newGeneration) {
+        if (newGeneration && table != null)
+            table.newSearch();
+        // The helpers were stopped by the end of the last search; a stop() for this one stands
+        // on the calling thread's search, which then stops them again
+        for (int i = 1; i < searches.length; i++) {
+            searches[i].clearStop();
+            // Not left at the last search's count until the helper gets going
+            searches[i].resetNodes();
+        }
+        for (int i = 1; i < searches.length; i++) {
+            Search helper = searches[i];
+            // Odd helpers skip a depth so the threads spread over different iterations
+            int start = 1 + (i & 1);
+            running[i] = helpers.submit(() -> helper.iterate(start, Search.MAX_DEPTH, 0));
+        }
+        int move;
+        try {
+            move = searches[0].iterate(firstDepth, lastDepth, millis);
+        } finally {
+            for (int i = 1; i < searches.length; i++)
+                searches[i].stop();
+            // Joined even when this thread is interrupted: the helpers must be idle before
+            // their Search objects are used again
+            boolean interrupted = false;
+            for (int i = 1; i < searches.length; i++)
+                interrupted |= await(running[i]);
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+        return collect(move, true);
+    }
+
+    // Whether the helpers join a search of the current position; recorded up front for
+    // searchedNodes
+    private boolean helps() {
+        helped = helpers != null && !searches[0].solvesEndgame();
+        return helped;
+    }
+
+    private int collect(int move, boolean helped) {
+        this.helped = helped;
+        long total = searches[0].nodes();
+        if (helped)
+            for (int i = 1; i < searches.length; i++)
+                total += searches[i].nodes();
+        nodes = total;
+        return move;
+    }
+
+    // Waits for a helper to finish, returning whether this thread was interrupted meanwhile
+    private static boolean await(Future<?> future) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                future.get();
+                return interrupted;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("search helper failed", e.getCause());
+            }
+        }
+    }
+}
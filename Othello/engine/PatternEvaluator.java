@@ -0,0 +1,296 @@
+package engine;
+
+import java.util.Arrays;
+
+// Table-driven evaluation. A pattern is a fixed list of squares read as a base-3 number (0 empty,
+// 1 own, 2 opponent) that indexes a table of short weights; there is one table per pattern and
+// game phase. Each pattern is matched in every orientation it occurs in by transforming the
+// bitboards so that the instance lines up with the squares the table describes, and the disc bits
+// of those squares are turned into the base-3 index through TERNARY. Mobility and potential
+// mobility are counted straight from the bitboards.
+//
+// The weights are hand-set from the usual Othello heuristics (corners, X- and C-squares next to
+// empty corners, edge discs anchored to a corner, diagonals that give up a corner) rather than
+// trained. Scores are from the point of view of 'own'; one disc is worth roughly DISC_VALUE.
+public final class PatternEvaluator {
+
+    // Scores are clamped to this so that Search's win score stays above every evaluation
+    public static final int MAX_SCORE = 900;
+    // Score of about one disc
+    public static final int DISC_VALUE = 4;
+    // Openings, early and late midgame, endgame; see phase()
+    static final int PHASES = 4;
+
+    // a1..h1, then the X-squares b2 and g2
+    private static final int EDGE_SQUARES = 10;
+    // a1 b1 c1 / a2 b2 c2 / a3 b3 c3
+    private static final int CORNER_SQUARES = 9;
+    // Diagonals of 4 to 8 squares, read from the top row down
+    private static final int MIN_DIAGONAL = 4;
+
+    private static final short[][] EDGE = new short[PHASES][pow3(EDGE_SQUARES)];
+    private static final short[][] CORNER = new short[PHASES][pow3(CORNER_SQUARES)];
+    private static final short[][][] DIAGONAL = new short[9][PHASES][];
+    // Square (i, i + 8 - length) for each i, by diagonal length
+    private static final long[] DIAGONAL_MASKS = new long[9];
+
+    // TERNARY[bits] reads 'bits' as base 3, so own bits plus twice the opponent's bits is a
+    // pattern index
+    private static final int[] TERNARY = new int[1 << EDGE_SQUARES];
+    // Per phase: each move more than the opponent, each empty square next to an opponent disc,
+    // and having the last move
+    private static final int[] MOBILITY = { 8, 8, 6, 4 };
+    private static final int[] POTENTIAL_MOBILITY = { 3, 3, 2, 1 };
+    private static final int[] PARITY = { 0, 0, 2, 4 };
+
+    static {
+        for (int bits = 0; bits < TERNARY.length; bits++)
+            for (int i = 0, power = 1; i < EDGE_SQUARES; i++, power *= 3)
+                if ((bits & (1 << i)) != 0)
+                    TERNARY[bits] += power;
+        for (int length = MIN_DIAGONAL; length <= 8; length++)
+            for (int i = 0; i < length; i++)
+                DIAGONAL_MASKS[length] |= 1L << (i * 9 + 8 - length);
+
+        Heuristics.fillEdges(EDGE, TERNARY);
+        Heuristics.fillCorners(CORNER, TERNARY);
+        for (int length = MIN_DIAGONAL; length <= 8; length++) {
+            for (int phase = 0; phase < PHASES; phase++)
+                DIAGONAL[length][phase] = new short[pow3(length)];
+            Heuristics.fillDiagonals(DIAGONAL[length], length, TERNARY);
+        }
+    }
+
+    private PatternEvaluator() {
+    }
+
+    // Score of the position for 'own', the side to move
+    public static int evaluate(long own, long opp) {
+        return evaluate(own, opp, Bitboard.legalMoves(own, opp), Bitboard.legalMoves(opp, own));
+    }
+
+    // The same, with both sides' legal moves already generated
+    static int evaluate(long own, long opp, long ownMoves, long oppMoves) {
+        int empties = 64 - Bitboard.count(own | opp);
+        int phase = phase(empties);
+        short[] edge = EDGE[phase], corner = CORNER[phase];
+
+        long ownT = Bitboard.transpose(own), oppT = Bitboard.transpose(opp);
+        long ownM = Bitboard.mirrorColumns(own), oppM = Bitboard.mirrorColumns(opp);
+        long ownV = Long.reverseBytes(own), oppV = Long.reverseBytes(opp);
+
+        int score = 0;
+        // Top, bottom, left and right edges
+        score += edge[edgeIndex(own, opp)];
+        score += edge[edgeIndex(ownV, oppV)];
+        score += edge[edgeIndex(ownT, oppT)];
+        score += edge[edgeIndex(Long.reverseBytes(ownT), Long.reverseBytes(oppT))];
+        // a1, h1, a8 and h8
+        score += corner[cornerIndex(own, opp)];
+        score += corner[cornerIndex(ownM, oppM)];
+        score += corner[cornerIndex(ownV, oppV)];
+        score += corner[cornerIndex(Long.reverseBytes(ownM), Long.reverseBytes(oppM))];
+        // The two long diagonals, then both diagonals of each shorter length on either side
+        short[] diagonal = DIAGONAL[8][phase];
+        score += diagonal[diagonalIndex(own, opp, 8)];
+        score += diagonal[diagonalIndex(ownM, oppM, 8)];
+        for (int length = MIN_DIAGONAL; length < 8; length++) {
+            diagonal = DIAGONAL[length][phase];
+            score += diagonal[diagonalIndex(own, opp, length)];
+            score += diagonal[diagonalIndex(ownT, oppT, length)];
+            score += diagonal[diagonalIndex(ownM, oppM, length)];
+            score += diagonal[diagonalIndex(ownV, oppV, length)];
+        }
+
+        score += MOBILITY[phase] * (Bitboard.count(ownMoves) - Bitboard.count(oppMoves));
+        long empty = ~(own | opp);
+        score += POTENTIAL_MOBILITY[phase]
+                * (Bitboard.count(neighbours(opp) & empty) - Bitboard.count(neighbours(own) & empty));
+        if ((empties & 1) != 0)
+            score += PARITY[phase];
+        return Math.max(-MAX_SCORE, Math.min(MAX_SCORE, score));
+    }
+
+    static int phase(int empties) {
+        return empties >= 45 ? 0 : empties >= 30 ? 1 : empties >= 15 ? 2 : 3;
+    }
+
+    private static int edgeIndex(long own, long opp) {
+        return TERNARY[edgeBits(own)] + 2 * TERNARY[edgeBits(opp)];
+    }
+
+    // Row 0, then b2 and g2 as bits 8 and 9
+    private static int edgeBits(long b) {
+        return (int) ((b & 0xFF) | ((b >>> 1) & 0x100) | ((b >>> 5) & 0x200));
+    }
+
+    private static int cornerIndex(long own, long opp) {
+        return TERNARY[cornerBits(own)] + 2 * TERNARY[cornerBits(opp)];
+    }
+
+    // Columns a to c of rows 0 to 2, row by row
+    private static int cornerBits(long b) {
+        return (int) ((b & 0x7) | ((b >>> 5) & 0x38) | ((b >>> 10) & 0x1C0));
+    }
+
+    private static int diagonalIndex(long own, long opp, int length) {
+        return TERNARY[diagonalBits(own, length)] + 2 * TERNARY[diagonalBits(opp, length)];
+    }
+
+    // The diagonal's squares all sit in different columns, so multiplying gathers them into the
+    // top byte without carries
+    private static int diagonalBits(long b, int length) {
+        return (int) ((((b & DIAGONAL_MASKS[length]) * 0x0101010101010101L) >>> 56) >>> (8 - length));
+    }
+
+    // Squares next to at least one disc of 'discs'
+    static long neighbours(long discs) {
+        long horizontal = ((discs << 1) & ~0x0101010101010101L) | ((discs >>> 1) & ~0x8080808080808080L);
+        long around = discs | horizontal;
+        return horizontal | (around << 8) | (around >>> 8);
+    }
+
+    private static int pow3(int n) {
+        int p = 1;
+        for (int i = 0; i < n; i++)
+            p *= 3;
+        return p;
+    }
+
+    // The hand-set weights and the code that turns them into tables. It is a class of its own so
+    // that the tables are built by code in an initialized class: code running inside
+    // PatternEvaluator's static initializer stays on the interpreter's slow paths, which made
+    // building the tables take about 450 ms instead of 45.
+    private static final class Heuristics {
+
+        // ANCHORED[discs] is the part of an edge's discs in an unbroken line from one of its corners
+        private static final int[] ANCHORED = new int[256];
+        // Edge squares between the corners, and the corner pattern's squares next to its corner
+        private static final int INNER_EDGE = 0x7E;
+        private static final int CORNER_NEIGHBOURS = 0x1A;
+
+        // Per phase: corner, X-square and C-square next to an empty corner, edge disc anchored to
+        // its own corner, any other edge disc, disc next to an owned corner, diagonal giving up a
+        // corner, and each disc on a diagonal (few discs early, many late)
+        private static final int[] CORNER_WEIGHT = { 40, 40, 36, 24 };
+        private static final int[] X_SQUARE = { -32, -30, -24, -12 };
+        private static final int[] C_SQUARE = { -10, -10, -8, -4 };
+        private static final int[] STABLE_EDGE = { 8, 8, 8, 6 };
+        private static final int[] EDGE_DISC = { 1, 1, 2, 2 };
+        private static final int[] CORNER_NEIGHBOUR = { 4, 4, 4, 3 };
+        private static final int[] CORNER_THREAT = { -16, -16, -14, -8 };
+        private static final int[] DIAGONAL_DISC = { -1, -1, 0, 1 };
+
+        static {
+            for (int edge = 0; edge < ANCHORED.length; edge++) {
+                int low = edge & ~(edge + 1);
+                int high = Integer.reverse(edge) >>> 24;
+                high = Integer.reverse(high & ~(high + 1)) >>> 24;
+                ANCHORED[edge] = (edge & 0x01) != 0 ? low : 0;
+                ANCHORED[edge] |= (edge & 0x80) != 0 ? high : 0;
+            }
+        }
+
+        // Which heuristic fill() applies
+        private static final int EDGE_PATTERN = 0;
+        private static final int CORNER_PATTERN = 1;
+        private static final int DIAGONAL_PATTERN = 2;
+
+        static void fillEdges(short[][] tables, int[] ternary) {
+            fill(tables, EDGE_SQUARES, ternary, EDGE_PATTERN);
+        }
+
+        static void fillCorners(short[][] tables, int[] ternary) {
+            fill(tables, CORNER_SQUARES, ternary, CORNER_PATTERN);
+        }
+
+        static void fillDiagonals(short[][] tables, int length, int[] ternary) {
+            fill(tables, length, ternary, DIAGONAL_PATTERN);
+        }
+
+        // Fills the tables of every phase. Each entry is the heuristic for own minus the heuristic
+        // with the colors swapped, so every table scores both sides alike.
+        private static void fill(short[][] tables, int squares, int[] ternary, int pattern) {
+            int all = (1 << squares) - 1;
+            int[] values = new int[PHASES], swapped = new int[PHASES];
+            for (int own = 0; own <= all; own++) {
+                int free = all & ~own;
+                // Every opponent set that does not overlap 'own', down to the empty one
+                for (int opp = free; ; opp = (opp - 1) & free) {
+                    Arrays.fill(values, 0);
+                    Arrays.fill(swapped, 0);
+                    add(pattern, squares, own, opp, values);
+                    add(pattern, squares, opp, own, swapped);
+                    int index = ternary[own] + 2 * ternary[opp];
+                    for (int phase = 0; phase < PHASES; phase++)
+                        tables[phase][index] = (short) (values[phase] - swapped[phase]);
+                    if (opp == 0)
+                        break;
+                }
+            }
+        }
+
+        // Adds to values[phase] the value, for the side owning 'mine', of the pattern squares whose
+        // bits are set in 'mine' and 'theirs' (bit i is the pattern's i-th square)
+        private static void add(int pattern, int squares, int mine, int theirs, int[] values) {
+            if (pattern == EDGE_PATTERN)
+                addEdge(mine, theirs, values);
+            else if (pattern == CORNER_PATTERN)
+                addCorner(mine, values);
+            else
+                addDiagonal(mine, theirs, squares, values);
+        }
+
+        private static void addEdge(int mine, int theirs, int[] values) {
+            int edge = mine & 0xFF;
+            // Discs in an unbroken line from an own corner (or anywhere on a full edge) stay put
+            int stable = ((mine | theirs) & 0xFF) == 0xFF ? edge : ANCHORED[edge];
+            int stableDiscs = Integer.bitCount(stable & INNER_EDGE);
+            int otherDiscs = Integer.bitCount(edge & ~stable & INNER_EDGE);
+            int empty = ~(mine | theirs);
+            int cSquares = 0, xSquares = 0;
+            if ((empty & 0x01) != 0) {
+                cSquares += mine >>> 1 & 1;
+                xSquares += mine >>> 8 & 1;
+            }
+            if ((empty & 0x80) != 0) {
+                cSquares += mine >>> 6 & 1;
+                xSquares += mine >>> 9 & 1;
+            }
+            for (int phase = 0; phase < PHASES; phase++)
+                values[phase] += STABLE_EDGE[phase] * stableDiscs + EDGE_DISC[phase] * otherDiscs
+                        + C_SQUARE[phase] * cSquares + X_SQUARE[phase] * xSquares;
+        }
+
+        private static void addCorner(int mine, int[] values) {
+            if ((mine & 1) == 0)
+                return;
+            int neighbours = Integer.bitCount(mine & CORNER_NEIGHBOURS);
+            for (int phase = 0; phase < PHASES; phase++)
+                values[phase] += CORNER_WEIGHT[phase] + CORNER_NEIGHBOUR[phase] * neighbours;
+        }
+
+        private static void addDiagonal(int mine, int theirs, int length, int[] values) {
+            int discs = Integer.bitCount(mine);
+            int threats = 0;
+            if (length == 8) {
+                // An empty corner, a run of own discs and then an opponent disc: the opponent can
+                // take the corner along the diagonal
+                if (opensCorner(mine, theirs))
+                    threats++;
+                if (opensCorner(Integer.reverse(mine) >>> 24, Integer.reverse(theirs) >>> 24))
+                    threats++;
+            }
+            for (int phase = 0; phase < PHASES; phase++)
+                values[phase] += DIAGONAL_DISC[phase] * discs + CORNER_THREAT[phase] * threats;
+        }
+
+        // Seen from bit 0 of an 8-square line
+        private static boolean opensCorner(int mine, int theirs) {
+            if (((mine | theirs) & 1) != 0)
+                return false;
+            int run = Integer.numberOfTrailingZeros(~(mine >>> 1));
+            return run > 0 && run < 7 && (theirs >>> (run + 1) & 1) != 0;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package engine;
+
+// Mutable game position with make/unmake. Every move records the discs it flipped so it can be
+// taken back exactly, which lets a search walk the whole tree on one instance without copying.
+public final class Position {
+
+    public static final int BLACK = 0;
+    public static final int WHITE = 1;
+    public static final int PASS = 64;
+    // 60 moves plus passes, with room to spare
+    public static final int MAX_PLY = 128;
+
+    // Static square values: corners best, the squares diagonally next to them (X-squares) worst
+    static final int[] SQUARE_WEIGHTS = {
+        100, -20,  10,   5,   5,  10, -20, 100,
+        -20, -50,  -2,  -2,  -2,  -2, -50, -20,
+         10,  -2,  -1,  -1,  -1,  -1,  -2,  10,
+          5,  -2,  -1,  -1,  -1,  -1,  -2,   5,
+          5,  -2,  -1,  -1,  -1,  -1,  -2,   5,
+         10,  -2,  -1,  -1,  -1,  -1,  -2,  10,
+        -20, -50,  -2,  -2,  -2,  -2, -50, -20,
+        100, -20,  10,   5,   5,  10, -20, 100,
+    };
+    // The same table grouped by value, so a side's total is a few popcounts instead of a loop
+    // over its discs: every square in WEIGHT_MASKS[i] is worth WEIGHT_VALUES[i]
+    private static final int[] WEIGHT_VALUES = { 100, 10, 5, -1, -2, -20, -50 };
+    private static final long[] WEIGHT_MASKS = new long[WEIGHT_VALUES.length];
+
+    static {
+        for (int sq = 0; sq < Bitboard.SQUARES; sq++)
+            for (int i = 0; i < WEIGHT_VALUES.length; i++)
+                if (SQUARE_WEIGHTS[sq] == WEIGHT_VALUES[i])
+                    WEIGHT_MASKS[i] |= 1L << sq;
+    }
+
+    private final long[] discs = new long[2];
+    private int side;
+    // Zobrist hash, kept up to date by makeMove/makePass
+    private long hash;
+
+    private final int[] moveHistory = new int[MAX_PLY];
+    private final long[] flipHistory = new long[MAX_PLY];
+    private final long[] hashHistory = new long[MAX_PLY];
+    private int ply;
+
+    public Position() {
+        reset();
+    }
+
+    public Position(long black, long white, int side) {
+        set(black, white, side);
+    }
+
+    // Standard starting position, black to move
+    public void reset() {
+        set(Bitboard.bit(3, 4) | Bitboard.bit(4, 3), Bitboard.bit(3, 3) | Bitboard.bit(4, 4), BLACK);
+    }
+
+    public void set(long black, long white, int side) {
+        discs[BLACK] = black;
+        discs[WHITE] = white;
+        this.side = side;
+        hash = Zobrist.hash(black, white, side);
+        ply = 0;
+    }
+
+    public void copyFrom(Position other) {
+        set(other.discs[BLACK], other.discs[WHITE], other.side);
+    }
+
+    public long discs(int color) {
+        return discs[color];
+    }
+
+    public int sideToMove() {
+        return side;
+    }
+
+    public long hash() {
+        return hash;
+    }
+
+    public long own() {
+        return discs[side];
+    }
+
+    public long opp() {
+        return discs[side ^ 1];
+    }
+
+    public long legalMoves() {
+        return Bitboard.legalMoves(discs[side], discs[side ^ 1]);
+    }
+
+    // Disc difference for the side to move
+    public int discDifference() {
+        return Bitboard.count(discs[side]) - Bitboard.count(discs[side ^ 1]);
+    }
+
+    // Difference in SQUARE_WEIGHTS totals for the side to move
+    public int positionalScore() {
+        long own = discs[side], opp = discs[side ^ 1];
+        int score = 0;
+        for (int i = 0; i < WEIGHT_VALUES.length; i++)
+            score += WEIGHT_VALUES[i] * (Bitboard.count(own & WEIGHT_MASKS[i]) - Bitboard.count(opp & WEIGHT_MASKS[i]));
+        return score;
+    }
+
+    public int empties() {
+        return 64 - Bitboard.count(discs[BLACK] | discs[WHITE]);
+    }
+
+    // Moves made since the last set()/reset()
+    public int ply() {
+        return ply;
+    }
+
+    // Plays sq for the side to move; sq must be legal
+    public void makeMove(int sq) {
+        long flipped = Bitboard.flips(discs[side], discs[side ^ 1], sq);
+        discs[side] |= (1L << sq) | flipped;
+        discs[side ^ 1] &= ~flipped;
+        moveHistory[ply] = sq;
+        flipHistory[ply] = flipped;
+        hashHistory[ply] = hash;
+        ply++;
+        hash ^= Zobrist.DISC[side][sq] ^ Zobrist.flips(flipped) ^ Zobrist.SIDE;
+        side ^= 1;
+    }
+
+    public void makePass() {
+        moveHistory[ply] = PASS;
+        flipHistory[ply] = 0;
+        hashHistory[ply] = hash;
+        ply++;
+        hash ^= Zobrist.SIDE;
+        side ^= 1;
+    }
+
+    // Takes back the last makeMove or makePass
+    public void undoMove() {
+        ply--;
+        side ^= 1;
+        hash = hashHistory[ply];
+        int sq = moveHistory[ply];
+        if (sq == PASS)
+            return;
+        long flipped = flipHistory[ply];
+        discs[side] &= ~((1L << sq) | flipped);
+        discs[side ^ 1] |= flipped;
+    }
+}
@@ -0,0 +1,103 @@
+package engine;
+
+// Multi-ProbCut (Buro): the score v of a deep search is predicted from the score v' of a shallow
+// one at the same node as v = a * v' + b, with the error of that guess roughly normal with
+// standard deviation sigma. When the prediction lies beyond a null window by more than 't'
+// sigmas, the deep search is taken to fail the same way and is skipped. The fit depends on how
+// deep the search is and on the stage of the game, so a, b and sigma are kept per game phase
+// (PatternEvaluator's) and depth, each depth d predicted from shallowDepth(d).
+//
+// The table comes from tools.ProbCutCalibration, which searches self-play positions full width
+// and fits the pairs of iteration scores; depths past the table use its deepest row. It belongs
+// to PatternEvaluator's scale, so only that evaluation is searched selectively.
+public final class ProbCut {
+
+    public static final int MIN_DEPTH = 3;
+    public static final int PHASES = 4;
+    // How many sigmas of confidence a cut needs
+    public static final double DEFAULT_THRESHOLD = 1.5;
+
+    // FIT[phase][depth - MIN_DEPTH] = { a, b, sigma }: 600 positions searched to depth 12, which
+    // is what "java tools.ProbCutCalibration positions=600 depth=12" (the defaults) prints
+    private static final double[][][] FIT = {
+            { // phase 0
+                    { 0.910, 3.09, 16.30 }, // depth 3 from 1: 142 pairs, r 0.913
+                    { 0.920, 2.11, 15.26 }, // depth 4 from 2: 142 pairs, r 0.922
+                    { 0.947, 0.57, 11.40 }, // depth 5 from 3: 142 pairs, r 0.957
+                    { 0.968, 1.09, 11.67 }, // depth 6 from 4: 142 pairs, r 0.956
+                    { 0.920, 1.04, 16.29 }, // depth 7 from 3: 142 pairs, r 0.914
+                    { 0.977, 2.31, 14.28 }, // depth 8 from 4: 142 pairs, r 0.938
+                    { 0.987, -0.42, 12.82 }, // depth 9 from 5: 142 pairs, r 0.950
+                    { 0.979, 3.31, 10.70 }, // depth 10 from 6: 142 pairs, r 0.964
+                    { 0.974, 1.28, 15.17 }, // depth 11 from 5: 142 pairs, r 0.930
+                    { 0.978, 5.13, 12.02 }, // depth 12 from 6: 142 pairs, r 0.956
+            },
+            { // phase 1
+                    { 1.003, 1.89, 18.88 }, // depth 3 from 1: 215 pairs, r 0.982
+                    { 0.992, -0.29, 20.83 }, // depth 4 from 2: 215 pairs, r 0.978
+                    { 1.011, 0.93, 16.98 }, // depth 5 from 3: 215 pairs, r 0.986
+                    { 1.042, -0.90, 16.98 }, // depth 6 from 4: 215 pairs, r 0.987
+                    { 1.067, 1.19, 24.20 }, // depth 7 from 3: 215 pairs, r 0.975
+                    { 1.062, -0.39, 24.89 }, // depth 8 from 4: 215 pairs, r 0.974
+                    { 1.077, 0.93, 25.13 }, // depth 9 from 5: 215 pairs, r 0.975
+                    { 1.056, -1.12, 26.72 }, // depth 10 from 6: 215 pairs, r 0.973
+                    { 1.114, 1.84, 31.42 }, // depth 11 from 5: 215 pairs, r 0.964
+                    { 1.128, -2.77, 33.09 }, // depth 12 from 6: 215 pairs, r 0.964
+            },
+            { // phase 2
+                    { 1.017, 8.34, 25.71 }, // depth 3 from 1: 199 pairs, r 0.979
+                    { 1.008, 2.73, 27.61 }, // depth 4 from 2: 199 pairs, r 0.976
+                    { 1.010, 1.06, 24.74 }, // depth 5 from 3: 199 pairs, r 0.981
+                    { 1.029, -0.75, 21.69 }, // depth 6 from 4: 199 pairs, r 0.986
+                    { 1.037, 2.15, 35.80 }, // depth 7 from 3: 198 pairs, r 0.963
+                    { 1.052, -0.89, 33.77 }, // depth 8 from 4: 198 pairs, r 0.968
+                    { 1.052, 2.11, 30.97 }, // depth 9 from 5: 198 pairs, r 0.974
+                    { 1.055, -1.09, 27.75 }, // depth 10 from 6: 197 pairs, r 0.980
+                    { 1.090, 3.21, 35.30 }, // depth 11 from 5: 197 pairs, r 0.969
+                    { 1.099, -3.18, 35.27 }, // depth 12 from 6: 197 pairs, r 0.971
+            },
+            { // phase 3
+                    { 1.059, 9.83, 26.96 }, // depth 3 from 1: 44 pairs, r 0.984
+                    { 1.068, 7.06, 28.87 }, // depth 4 from 2: 44 pairs, r 0.984
+                    { 1.078, 7.97, 25.68 }, // depth 5 from 3: 44 pairs, r 0.988
+                    { 1.059, 8.49, 24.81 }, // depth 6 from 4: 44 pairs, r 0.989
+                    { 1.126, 9.38, 39.74 }, // depth 7 from 3: 44 pairs, r 0.973
+                    { 1.091, 9.90, 39.20 }, // depth 8 from 4: 44 pairs, r 0.976
+                    { 1.083, 1.80, 39.06 }, // depth 9 from 5: 44 pairs, r 0.977
+                    { 1.090, 2.87, 40.27 }, // depth 10 from 6: 43 pairs, r 0.976
+                    { 1.175, -4.08, 55.99 }, // depth 11 from 5: 40 pairs, r 0.946
+                    { 1.192, 5.09, 62.29 }, // depth 12 from 6: 28 pairs, r 0.914
+            },
+    };
+
+    private ProbCut() {
+    }
+
+    public static int phase(int empties) {
+        return PatternEvaluator.phase(empties);
+    }
+
+    // The shallow search that predicts one of 'depth': half as deep, rounded to the same parity so
+    // that both end on the same side's move
+    public static int shallowDepth(int depth) {
+        int shallow = depth / 2;
+        return ((depth - shallow) & 1) == 0 ? shallow : shallow + 1;
+    }
+
+    static double slope(int phase, int depth) {
+        return row(phase, depth)[0];
+    }
+
+    static double offset(int phase, int depth) {
+        return row(phase, depth)[1];
+    }
+
+    static double sigma(int phase, int depth) {
+        return row(phase, depth)[2];
+    }
+
+    private static double[] row(int phase, int depth) {
+        double[][] rows = FIT[phase];
+        return rows[Math.min(depth - MIN_DEPTH, rows.length - 1)];
+    }
+}
@@ -0,0 +1,688 @@
+package engine;
+
+import java.util.Arrays;
+
+// Alpha-beta search over a single Position using make/unmake. All working storage is allocated
+// up front, so nothing is allocated while the tree is being searched. Scores are in negamax form,
+// from the point of view of the side to move.
+public final class Search {
+
+    public static final int WIN_SCORE = 100;
+    // What leaves are scored by: the disc difference, the difference in square weight totals, or
+    // PatternEvaluator
+    public static final int DISC_EVAL = 0;
+    public static final int POSITIONAL_EVAL = 1;
+    public static final int PATTERN_EVAL = 2;
+    // A finished game under POSITIONAL_EVAL or PATTERN_EVAL: weight differences stay within +-928
+    // and pattern scores within PatternEvaluator.MAX_SCORE
+    public static final int POSITIONAL_WIN_SCORE = 960;
+    public static final int INFINITY = 1_000_000;
+    // setSelectivity() value that searches every move
+    public static final double FULL_WIDTH = 0;
+    // probCut() found nothing to cut
+    private static final int NO_CUT = Integer.MIN_VALUE;
+    // Nodes this close to the leaves are cheaper to search than to look up
+    private static final int MIN_TABLE_DEPTH = 2;
+    // Deepest iteration a timed search will try (no game has more empty squares). A position
+    // the endgame solver played out to the end reports this as its completed depth.
+    public static final int MAX_DEPTH = 60;
+    // How many nodes pass between clock checks
+    private static final int TIME_CHECK_INTERVAL = 1024;
+    // Half-width of the root window around the previous iteration's score
+    private static final int ASPIRATION_WINDOW = 4;
+    // Nodes with at least this much depth left order their moves by the opponent's reply count
+    private static final int MOBILITY_ORDER_DEPTH = 4;
+
+    // Move ordering keys: the table move always first, then killers, then everything else by
+    // square weight, history and (deep enough) opponent mobility
+    private static final int TABLE_MOVE_KEY = Integer.MAX_VALUE;
+    private static final int KILLER_KEY = 1 << 28;
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    private final Position position = new Position();
+    private final int[][] moveLists = new int[Position.MAX_PLY][Bitboard.SQUARES];
+    private final int[][] moveKeys = new int[Position.MAX_PLY][Bitboard.SQUARES];
+    private final int[][] killers = new int[Position.MAX_PLY][2];
+    // Depth-squared credit for every move that caused a cutoff, by side and square
+    private final int[][] history = new int[2][Bitboard.SQUARES];
+    private TranspositionTable table;
+
+    private final int[] rootScores = new int[Bitboard.SQUARES];
+
+    private int bestScore;
+    private long nodes;
+    private int completedDepth;
+    private long deadline;
+    // stopped ends the running search, whether from a stop(), an interrupt or the deadline;
+    // stopRequested remembers a stop() until clearStop(), so one that arrives before the search
+    // starts still stops it
+    private volatile boolean stopped;
+    private volatile boolean stopRequested;
+    private int rootRotation;
+    private SearchListener listener;
+    private final SearchStats stats = new SearchStats();
+    private int evaluation = PATTERN_EVAL;
+    private double selectivity = ProbCut.DEFAULT_THRESHOLD;
+    // Positions with this many empty squares or fewer are solved exactly; created on first use
+    private int endgameEmpties = EndgameSolver.DEFAULT_EMPTIES;
+    private int endgameTableMB = EndgameSolver.DEFAULT_TABLE_MB;
+    private EndgameSolver endgame;
+
+    public Search() {
+        this(null);
+    }
+
+    // 'table' may be null to search without one
+    public Search(TranspositionTable table) {
+        this.table = table;
+    }
+
+    public TranspositionTable transpositionTable() {
+        return table;
+    }
+
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
+    // Told about every finished iteration; may be null
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    // DISC_EVAL, POSITIONAL_EVAL or PATTERN_EVAL. Scores of different evaluations do not mix, so a
+    // shared table should be cleared after switching.
+    public void setEvaluation(int evaluation) {
+        if (evaluation != DISC_EVAL && evaluation != POSITIONAL_EVAL && evaluation != PATTERN_EVAL)
+            throw new IllegalArgumentException("unknown evaluation: " + evaluation);
+        this.evaluation = evaluation;
+    }
+
+    public int evaluation() {
+        return evaluation;
+    }
+
+    // Multi-ProbCut's confidence, in standard deviations, before it skips a deep search that a
+    // shallow one predicts will fail (see ProbCut); FULL_WIDTH searches every move. Only the
+    // pattern evaluation is searched selectively. A table shared with full-width searches gets
+    // bounds from selective ones, so it is best cleared after switching.
+    public void setSelectivity(double threshold) {
+        if (threshold < 0)
+            throw new IllegalArgumentException("negative threshold: " + threshold);
+        this.selectivity = threshold;
+    }
+
+    public double selectivity() {
+        return selectivity;
+    }
+
+    // Empty squares at which the exact endgame solver takes over; 0 never uses it
+    public void setEndgameEmpties(int empties) {
+        this.endgameEmpties = empties;
+    }
+
+    public int endgameEmpties() {
+        return endgameEmpties;
+    }
+
+    // Size of the endgame solver's own table; a new size drops the current solver
+    public void setEndgameTableMB(int megabytes) {
+        if (megabytes != endgameTableMB)
+            endgame = null;
+        this.endgameTableMB = megabytes;
+    }
+
+    public Position position() {
+        return position;
+    }
+
+    public void setPosition(long black, long white, int side) {
+        position.set(black, white, side);
+    }
+
+    public int bestScore() {
+        return bestScore;
+    }
+
+    public long nodes() {
+        return nodes;
+    }
+
+    void resetNodes() {
+        nodes = 0;
+    }
+
+    // Best move for the side to move searched to 'depth' plies, or Position.PASS if it has none
+    // (the score is then that of the position after the pass). Shallower iterations run first to
+    // seed the move ordering.
+    public int bestMove(int depth) {
+        if (table != null)
+            table.newSearch();
+        return iterate(1, depth, 0);
+    }
+
+    // Deepens 1, 2, 3... until 'millis' has passed and returns the best move of the deepest
+    // iteration that finished. The first iteration always finishes. An endgame solve that has not
+    // finished by half of 'millis' is given up for the iterations.
+    public int bestMoveInTime(long millis) {
+        if (table != null)
+            table.newSearch();
+        return iterate(1, MAX_DEPTH, millis);
+    }
+
+    // bestMove as one of a series of searches that share a table generation, which the caller
+    // starts once for all of them with newSearch() on the table. What the earlier searches of the
+    // series stored then does not age, as it would if each one started a generation.
+    public int bestMoveInSeries(int depth) {
+        return iterate(1, depth, 0);
+    }
+
+    // Depth of the last iteration that finished
+    public int completedDepth() {
+        return completedDepth;
+    }
+
+    // What the last search did; see SearchStats
+    public SearchStats stats() {
+        return stats.copy();
+    }
+
+    SearchStats statsView() {
+        return stats;
+    }
+
+    // Iterative deepening from firstDepth to lastDepth. Unlike the public entry points this does
+    // not start a new table generation, so ParallelSearch can do it once for all of its threads.
+    int iterate(int firstDepth, int lastDepth, long millis) {
+        long start = System.nanoTime();
+        stopped = stopRequested;
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        if (SearchStats.ENABLED)
+            stats.reset();
+        int move = deepen(firstDepth, lastDepth, millis);
+        stats.nodes = nodes;
+        stats.completedDepth = completedDepth;
+        stats.nanos = System.nanoTime() - start;
+        event.end();
+        if (event.shouldCommit()) {
+            event.empties = position.empties();
+            event.completedDepth = completedDepth;
+            event.bestMove = Bitboard.name(move);
+            event.score = bestScore;
+            event.nodes = nodes;
+            event.leafEvaluations = stats.leafEvaluations;
+            event.betaCutoffs = stats.betaCutoffs;
+            event.firstMoveCutoffs = stats.cutoffsByMoveIndex[0];
+            event.tableProbes = stats.tableProbes;
+            event.tableHits = stats.tableHits;
+            // Only ParallelSearch's helpers start from another root move
+            event.helper = rootRotation != 0;
+            event.commit();
+        }
+        return move;
+    }
+
+    private int deepen(int firstDepth, int lastDepth, long millis) {
+        nodes = 0;
+        completedDepth = 0;
+        deadline = millis > 0 ? System.nanoTime() + millis * 1_000_000 : Long.MAX_VALUE;
+        int[] moves = moveLists[0];
+        int count = generateMoves(position.legalMoves(), moves);
+        if (count == 0) {
+            if (!Bitboard.hasMove(position.opp(), position.own())) {
+                bestScore = finalScore();
+                return Position.PASS;
+            }
+            // Search the opponent's reply to the pass instead
+            position.makePass();
+            deepen(firstDepth, lastDepth, millis);
+            position.undoMove();
+            bestScore = -bestScore;
+            return Position.PASS;
+        }
+        if (solvesEndgame()) {
+            int move = solveEndgame(moves[0], millis);
+            // A timed solve that ran out of time falls back to the iterations below, whose first
+            // still finishes
+            if (completedDepth > 0 || stopped || !endgame.timedOut())
+                return move;
+        }
+        for (int[] k : killers)
+            k[0] = k[1] = TranspositionTable.NO_MOVE;
+        for (int[] h : history)
+            for (int sq = 0; sq < h.length; sq++)
+                h[sq] >>= 1;
+        scoreMoves(moves, rootScores, count, TranspositionTable.NO_MOVE, 0, MAX_DEPTH);
+        sortRootMoves(moves, count);
+        rotate(moves, count, rootRotation);
+        // One ply past the last empty square every line has reached its final score, so deeper
+        // iterations cannot change anything. Callers may ask for more than MAX_DEPTH, which the
+        // per-iteration stats and SearchResult.solved() do not allow for.
+        lastDepth = Math.min(Math.min(lastDepth, MAX_DEPTH), Math.max(firstDepth, position.empties() + 1));
+        int bestMove = moves[0];
+        bestScore = 0;
+        for (int depth = firstDepth; depth <= lastDepth; depth++) {
+            long iterationStart = nodes, iterationTime = System.nanoTime();
+            IterationEvent event = new IterationEvent();
+            event.begin();
+            int alpha = -INFINITY, beta = INFINITY;
+            if (depth > firstDepth) {
+                alpha = bestScore - ASPIRATION_WINDOW;
+                beta = bestScore + ASPIRATION_WINDOW;
+            }
+            int best = searchRoot(moves, count, depth, alpha, beta);
+            boolean researched = !stopped && (best <= alpha || best >= beta);
+            if (researched)
+                best = searchRoot(moves, count, depth, -INFINITY, INFINITY);
+            // An abandoned iteration is counted too: it is often where the time went
+            stats.iterationNanos[depth] = System.nanoTime() - iterationTime;
+            stats.iterationNodes[depth] = nodes - iterationStart;
+            if (stopped)
+                break;
+            bestMove = moves[0];
+            bestScore = best;
+            completedDepth = depth;
+            // For principalVariation: the root is never probed, but after a pass at the root above
+            // it the line continues from here
+            if (table != null)
+                table.store(position.hash(), depth, TranspositionTable.EXACT, best, bestMove);
+            event.end();
+            if (event.shouldCommit()) {
+                event.depth = depth;
+                event.bestMove = Bitboard.name(bestMove);
+                event.score = best;
+                event.nodes = nodes - iterationStart;
+                event.researched = researched;
+                event.commit();
+            }
+            if (listener != null)
+                listener.iterationFinished(depth, bestMove, best, nodes - iterationStart);
+        }
+        return bestMove;
+    }
+
+    boolean solvesEndgame() {
+        return position.empties() <= endgameEmpties;
+    }
+
+    // Plays the position out exactly instead of iterating. The score is then the final disc
+    // difference. A stopped solve has no result, so 'fallback' is returned with completedDepth 0.
+    // A timed solve gets half of the budget, so there is time left to search if it gives up.
+    private int solveEndgame(int fallback, long millis) {
+        if (endgame == null)
+            endgame = new EndgameSolver(endgameTableMB);
+        if (stopped)
+            return fallback;
+        long solveDeadline = millis > 0 ? System.nanoTime() + millis * 500_000 : Long.MAX_VALUE;
+        int move = endgame.bestMove(position.own(), position.opp(), solveDeadline);
+        nodes = endgame.nodes();
+        if (stopped || endgame.stopped())
+            return fallback;
+        bestScore = endgame.bestScore();
+        completedDepth = MAX_DEPTH;
+        if (listener != null)
+            listener.iterationFinished(MAX_DEPTH, move, bestScore, nodes);
+        return move;
+    }
+
+    // Principal variation search over the root moves within (alpha, beta). Afterwards the root list
+    // is sorted best first, so the next iteration (or a re-search) starts from the best move.
+    private int searchRoot(int[] moves, int count, int depth, int alpha, int beta) {
+        int best = -INFINITY;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            int score;
+            if (i == 0) {
+                score = -minimax(-beta, -alpha, depth - 1, 1);
+            } else {
+                score = -minimax(-alpha - 1, -alpha, depth - 1, 1);
+                if (score > alpha && score < beta)
+                    score = -minimax(-beta, -alpha, depth - 1, 1);
+            }
+            position.undoMove();
+            if (stopped)
+                return best;
+            rootScores[i] = score;
+            if (score > best) {
+                best = score;
+                alpha = Math.max(alpha, best);
+            }
+            if (alpha >= beta) {
+                // Fail high: the caller re-searches, so the rest only need to sort last
+                for (int j = i + 1; j < count; j++)
+                    rootScores[j] = -INFINITY;
+                break;
+            }
+        }
+        sortRootMoves(moves, count);
+        return best;
+    }
+
+    // Stable insertion sort on rootScores, highest first, so ties keep their earlier order
+    private void sortRootMoves(int[] moves, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i], score = rootScores[i];
+            int j = i - 1;
+            while (j >= 0 && rootScores[j] < score) {
+                moves[j + 1] = moves[j];
+                rootScores[j + 1] = rootScores[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            rootScores[j + 1] = score;
+        }
+    }
+
+    // The line the table expects after playing 'move' at the root: 'move', then the table move of
+    // each following position for as long as it is legal, at most 'depth' moves (entries left by
+    // deeper searches would run on past what the last iteration saw). A side with no move passes
+    // (Position.PASS in the line, not counted as one of the 'depth', as in the search) and the
+    // line goes on; it ends with the game. Call between searches or from the listener, while the
+    // position is at the root.
+    public int[] principalVariation(int move, int depth) {
+        int[] line = new int[Position.MAX_PLY];
+        int length = 0, moves = 0;
+        while (moves < Math.min(depth, MAX_DEPTH) && length < line.length) {
+            if (position.legalMoves() == 0) {
+                if (!Bitboard.hasMove(position.opp(), position.own()))
+                    break;
+                line[length++] = Position.PASS;
+                position.makePass();
+            } else {
+                if (move >= Bitboard.SQUARES || (position.legalMoves() & (1L << move)) == 0)
+                    break;
+                line[length++] = move;
+                moves++;
+                position.makeMove(move);
+            }
+            long entry = table != null ? table.probe(position.hash()) : 0;
+            move = entry != 0 ? TranspositionTable.move(entry) : TranspositionTable.NO_MOVE;
+        }
+        for (int i = 0; i < length; i++)
+            position.undoMove();
+        return Arrays.copyOf(line, length);
+    }
+
+    // Asks the running search to stop; it returns the result of its last finished iteration.
+    // Interrupting the searching thread has the same effect. The request stands until
+    // clearStop(), so it also stops a search that has not started yet: a caller that hands
+    // stop() to another thread clears it before it lets that thread know it is searching.
+    public void stop() {
+        stopRequested = true;
+        stopped = true;
+        EndgameSolver solver = endgame;
+        if (solver != null)
+            solver.stop();
+    }
+
+    // Withdraws a stop() so that the next search runs
+    public void clearStop() {
+        stopRequested = false;
+        EndgameSolver solver = endgame;
+        if (solver != null)
+            solver.clearStop();
+    }
+
+    // Helper threads start from a different root move so they do not all search the same subtree
+    void setRootRotation(int rotation) {
+        this.rootRotation = rotation;
+    }
+
+    private static void rotate(int[] moves, int count, int by) {
+        for (int r = by % count; r > 0; r--) {
+            int first = moves[0];
+            System.arraycopy(moves, 1, moves, 0, count - 1);
+            moves[count - 1] = first;
+        }
+    }
+
+    private void checkStop() {
+        if (stopRequested || Thread.currentThread().isInterrupted() || (completedDepth > 0 && System.nanoTime() >= deadline))
+            stopped = true;
+    }
+
+    // Score of the current position searched to 'depth' plies
+    public int minimax(int alpha, int beta, int depth) {
+        return minimax(alpha, beta, depth, 0);
+    }
+
+    private int minimax(int alpha, int beta, int depth, int ply) {
+        if (++nodes % TIME_CHECK_INTERVAL == 0)
+            checkStop();
+        if (stopped)
+            return 0;
+        if (depth == 0) {
+            if (SearchStats.ENABLED)
+                stats.leafEvaluations++;
+            return evaluateLeaf();
+        }
+
+        // The moves are generated once and serve the pass and game-over tests as well as the loop
+        long mask = position.legalMoves();
+        if (mask == 0) {
+            // Neither side can move: the game is over. Otherwise the side to move passes, which
+            // costs no depth, so the opponent is searched as deep as this node would have been.
+            if (!Bitboard.hasMove(position.opp(), position.own()))
+                return finalScore();
+            position.makePass();
+            int value = -minimax(-beta, -alpha, depth, ply + 1);
+            position.undoMove();
+            return stopped ? 0 : value;
+        }
+
+        int ttMove = TranspositionTable.NO_MOVE;
+        boolean useTable = table != null && depth >= MIN_TABLE_DEPTH;
+        if (useTable) {
+            long entry = table.probe(position.hash());
+            if (SearchStats.ENABLED)
+                stats.tableProbes++;
+            if (entry != 0) {
+                if (SearchStats.ENABLED)
+                    stats.tableHits++;
+                ttMove = TranspositionTable.move(entry);
+                if (TranspositionTable.depth(entry) >= depth) {
+                    int score = TranspositionTable.score(entry);
+                    switch (TranspositionTable.bound(entry)) {
+                        case TranspositionTable.EXACT:
+                            if (SearchStats.ENABLED)
+                                stats.tableCutoffs++;
+                            return score;
+                        case TranspositionTable.LOWER:
+                            alpha = Math.max(alpha, score);
+                            break;
+                        case TranspositionTable.UPPER:
+                            beta = Math.min(beta, score);
+                            break;
+                    }
+                    if (beta <= alpha) {
+                        if (SearchStats.ENABLED)
+                            stats.tableCutoffs++;
+                        return score;
+                    }
+                }
+            }
+        }
+
+        // The window the moves are searched with, narrowed by the table's bounds: a score at or
+        // below the narrowed alpha is only an upper bound, even above the alpha this node got
+        int alphaOrig = alpha;
+
+        // Multi-ProbCut, on null-window nodes only: the principal variation is searched in full
+        if (selectivity > FULL_WIDTH && evaluation == PATTERN_EVAL && depth >= ProbCut.MIN_DEPTH && beta - alpha == 1) {
+            int cut = probCut(alpha, beta, depth, ply);
+            if (stopped)
+                return 0;
+            if (cut != NO_CUT)
+                return cut;
+        }
+
+        int best = -INFINITY;
+        int bestMove = TranspositionTable.NO_MOVE;
+        int[] moves = moveLists[ply];
+        int[] keys = moveKeys[ply];
+        int count = generateMoves(mask, moves);
+        // Just above the leaves, ordering costs more than the cutoffs it buys
+        boolean ordered = depth > 1;
+        if (ordered)
+            scoreMoves(moves, keys, count, ttMove, ply, depth);
+        for (int i = 0; i < count; i++) {
+            int move = ordered ? pickNext(moves, keys, i, count) : moves[i];
+            position.makeMove(move);
+            int value;
+            if (i == 0) {
+                value = -minimax(-beta, -alpha, depth - 1, ply + 1);
+            } else {
+                // Null window first: later moves are expected to be worse than the first
+                value = -minimax(-alpha - 1, -alpha, depth - 1, ply + 1);
+                if (value > alpha && value < beta)
+                    value = -minimax(-beta, -alpha, depth - 1, ply + 1);
+            }
+            position.undoMove();
+            if (stopped)
+                return 0;
+            if (value > best) {
+                best = value;
+                bestMove = move;
+            }
+            alpha = Math.max(alpha, best);
+            if (beta <= alpha) {
+                rememberCutoff(move, ply, depth);
+                if (SearchStats.ENABLED)
+                    stats.cutoff(i);
+                break;
+            }
+        }
+
+        if (useTable) {
+            int bound = best <= alphaOrig ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(position.hash(), depth, bound, best, bestMove);
+        }
+        return best;
+    }
+
+    // beta if a shallow search predicts that searching this node to 'depth' would fail high with
+    // 'selectivity' standard deviations to spare, alpha if it predicts a fail low just as surely,
+    // NO_CUT otherwise. The shallow searches use this node's ply, whose move list is not yet
+    // filled.
+    private int probCut(int alpha, int beta, int depth, int ply) {
+        int phase = ProbCut.phase(position.empties());
+        int shallow = ProbCut.shallowDepth(depth);
+        double a = ProbCut.slope(phase, depth), b = ProbCut.offset(phase, depth);
+        double margin = selectivity * ProbCut.sigma(phase, depth);
+        if (SearchStats.ENABLED)
+            stats.probCutTries++;
+        // Shallow scores at or above 'high' predict a deep one at or above beta
+        int high = (int) Math.ceil((beta + margin - b) / a);
+        if (high < PatternEvaluator.MAX_SCORE && minimax(high - 1, high, shallow, ply) >= high) {
+            if (SearchStats.ENABLED)
+                stats.probCuts++;
+            return beta;
+        }
+        int low = (int) Math.floor((alpha - margin - b) / a);
+        if (low > -PatternEvaluator.MAX_SCORE && !stopped && minimax(low, low + 1, shallow, ply) <= low) {
+            if (SearchStats.ENABLED)
+                stats.probCuts++;
+            return alpha;
+        }
+        return NO_CUT;
+    }
+
+    // Score of a leaf. The pattern evaluation counts both sides' moves anyway, so with it a leaf
+    // where neither side can move is scored as the finished game it is; with the others only a
+    // full board is.
+    private int evaluateLeaf() {
+        long own = position.own(), opp = position.opp();
+        if (evaluation == PATTERN_EVAL) {
+            long ownMoves = Bitboard.legalMoves(own, opp), oppMoves = Bitboard.legalMoves(opp, own);
+            if ((ownMoves | oppMoves) == 0)
+                return finalScore();
+            return PatternEvaluator.evaluate(own, opp, ownMoves, oppMoves);
+        }
+        return (own | opp) == -1L ? finalScore() : evalFunction();
+    }
+
+    // Static score for the side to move; all of them come straight from the bitboards
+    public int evalFunction() {
+        switch (evaluation) {
+            case PATTERN_EVAL:
+                return PatternEvaluator.evaluate(position.own(), position.opp());
+            case POSITIONAL_EVAL:
+                return position.positionalScore();
+            default:
+                return position.discDifference();
+        }
+    }
+
+    private int finalScore() {
+        int diff = position.discDifference();
+        int win = evaluation == DISC_EVAL ? WIN_SCORE : POSITIONAL_WIN_SCORE;
+        return diff > 0 ? win : diff < 0 ? -win : 0;
+    }
+
+    // Gives every move an ordering key; higher keys are searched first
+    private void scoreMoves(int[] moves, int[] keys, int count, int ttMove, int ply, int depth) {
+        int side = position.sideToMove();
+        long own = position.own(), opp = position.opp();
+        boolean byMobility = depth >= MOBILITY_ORDER_DEPTH && count > 1;
+        int[] killer = killers[ply];
+        for (int i = 0; i < count; i++) {
+            int sq = moves[i];
+            if (sq == ttMove) {
+                keys[i] = TABLE_MOVE_KEY;
+                continue;
+            }
+            int key = Position.SQUARE_WEIGHTS[sq] * 64 + history[side][sq];
+            if (sq == killer[0])
+                key += KILLER_KEY;
+            else if (sq == killer[1])
+                key += KILLER_KEY / 2;
+            if (byMobility) {
+                // Fewer replies for the opponent is better
+                long flipped = Bitboard.flips(own, opp, sq);
+                long replies = Bitboard.legalMoves(opp & ~flipped, own | flipped | (1L << sq));
+                key -= Bitboard.count(replies) * 256;
+            }
+            keys[i] = key;
+        }
+    }
+
+    // Selection step: swaps the best remaining move into slot i and returns it
+    private static int pickNext(int[] moves, int[] keys, int i, int count) {
+        int best = i;
+        for (int j = i + 1; j < count; j++)
+            if (keys[j] > keys[best])
+                best = j;
+        int move = moves[best];
+        moves[best] = moves[i];
+        moves[i] = move;
+        int key = keys[best];
+        keys[best] = keys[i];
+        keys[i] = key;
+        return move;
+    }
+
+    private void rememberCutoff(int move, int ply, int depth) {
+        int[] killer = killers[ply];
+        if (killer[0] != move) {
+            killer[1] = killer[0];
+            killer[0] = move;
+        }
+        int[] h = history[position.sideToMove()];
+        h[move] += depth * depth;
+        if (h[move] > HISTORY_LIMIT)
+            for (int sq = 0; sq < h.length; sq++)
+                h[sq] >>= 1;
+    }
+
+    // Fills 'moves' with the squares of 'mask' in raster order and returns how many there are
+    private static int generateMoves(long mask, int[] moves) {
+        int count = 0;
+        while (mask != 0) {
+            moves[count++] = Long.numberOfTrailingZeros(mask);
+            mask &= mask - 1;
+        }
+        return count;
+    }
+}
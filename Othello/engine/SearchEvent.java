@@ -0,0 +1,54 @@
+package engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One Search.iterate call, on the thread that ran it, for Flight Recorder. Record with
+// -XX:StartFlightRecording and look for "othello.Search" (and othello.SearchIteration for the
+// iterations inside it) to see which moves were slow and why.
+@Name("othello.Search")
+@Label("Search")
+@Category("Othello")
+@Description("One search of a position by one thread")
+@StackTrace(false)
+final class SearchEvent extends Event {
+
+    @Label("Empty Squares")
+    int empties;
+
+    @Label("Completed Depth")
+    @Description("60 for an endgame solve")
+    int completedDepth;
+
+    @Label("Best Move")
+    String bestMove;
+
+    @Label("Score")
+    int score;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Leaf Evaluations")
+    long leafEvaluations;
+
+    @Label("Beta Cutoffs")
+    long betaCutoffs;
+
+    @Label("First Move Cutoffs")
+    long firstMoveCutoffs;
+
+    @Label("Table Probes")
+    long tableProbes;
+
+    @Label("Table Hits")
+    long tableHits;
+
+    @Label("Helper")
+    @Description("A Lazy SMP helper thread, whose result only fills the table")
+    boolean helper;
+}
@@ -0,0 +1,8 @@
+package engine;
+
+// Receives progress from a running search. Called on the searching thread after each
+// iteration of iterative deepening finishes, with the nodes that iteration searched.
+public interface SearchListener {
+
+    void iterationFinished(int depth, int bestMove, int score, long nodes);
+}
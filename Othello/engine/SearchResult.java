@@ -0,0 +1,67 @@
+package engine;
+
+// What one Engine search decided: the move (Position.PASS if there was none), its score for the
+// side to move, the depth of the last finished iteration (Search.MAX_DEPTH for an endgame solve),
+// the line it expects to follow, and what it cost.
+public final class SearchResult {
+
+    private final int move;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long millis;
+    private final boolean fromBook;
+    private final int[] principalVariation;
+
+    public SearchResult(int move, int score, int depth, int[] principalVariation, long nodes, long millis,
+            boolean fromBook) {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.principalVariation = principalVariation.clone();
+        this.nodes = nodes;
+        this.millis = millis;
+        this.fromBook = fromBook;
+    }
+
+    public int move() {
+        return move;
+    }
+
+    public int score() {
+        return score;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    // 'move' first, with Position.PASS for a side that has to pass; empty when the game is over
+    public int[] principalVariation() {
+        return principalVariation.clone();
+    }
+
+    public long nodes() {
+        return nodes;
+    }
+
+    public long millis() {
+        return millis;
+    }
+
+    // Played from the opening book without searching; score and depth are the book's
+    public boolean fromBook() {
+        return fromBook;
+    }
+
+    // The score is the exact final disc difference
+    public boolean solved() {
+        return depth >= Search.MAX_DEPTH;
+    }
+
+    @Override
+    public String toString() {
+        String reached = fromBook ? "book" : solved() ? "solved" : "depth " + depth;
+        return String.format("%s (%d), %s, %,d nodes, %d ms", Bitboard.name(move), score, reached, nodes, millis);
+    }
+}
@@ -0,0 +1,154 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+// What a search did, for finding out why a move was slow: nodes, leaf evaluations, beta cutoffs
+// by the index of the move that caused them, transposition table probes and hits, and the time
+// and nodes of every iteration. Each Search fills its own, so counting needs no synchronization;
+// ParallelSearch adds up those of its threads.
+//
+// Counting costs a few increments per node. Running with -Dothello.searchStats=false turns it
+// off; the flag is a constant, so the JIT then drops the counting code altogether.
+public final class SearchStats {
+
+    public static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("othello.searchStats", "true"));
+    // Cutoffs by later moves than this are counted together in the last slot
+    public static final int CUTOFF_SLOTS = 8;
+
+    long nodes;
+    long leafEvaluations;
+    long betaCutoffs;
+    final long[] cutoffsByMoveIndex = new long[CUTOFF_SLOTS];
+    long tableProbes;
+    long tableHits;
+    // Probes whose stored bound settled the node without searching it
+    long tableCutoffs;
+    // Nodes where Multi-ProbCut ran its shallow searches, and those it cut
+    long probCutTries;
+    long probCuts;
+    int completedDepth;
+    final long[] iterationNanos = new long[Search.MAX_DEPTH + 1];
+    final long[] iterationNodes = new long[Search.MAX_DEPTH + 1];
+    long nanos;
+
+    void reset() {
+        nodes = leafEvaluations = betaCutoffs = tableProbes = tableHits = tableCutoffs = nanos = 0;
+        probCutTries = probCuts = 0;
+        completedDepth = 0;
+        Arrays.fill(cutoffsByMoveIndex, 0);
+        Arrays.fill(iterationNanos, 0);
+        Arrays.fill(iterationNodes, 0);
+    }
+
+    void cutoff(int moveIndex) {
+        betaCutoffs++;
+        cutoffsByMoveIndex[Math.min(moveIndex, CUTOFF_SLOTS - 1)]++;
+    }
+
+    SearchStats copy() {
+        SearchStats s = new SearchStats();
+        s.add(this);
+        s.completedDepth = completedDepth;
+        s.nanos = nanos;
+        System.arraycopy(iterationNanos, 0, s.iterationNanos, 0, iterationNanos.length);
+        return s;
+    }
+
+    // Adds the counts of a helper thread; depth and timing stay this search's own
+    void add(SearchStats other) {
+        nodes += other.nodes;
+        leafEvaluations += other.leafEvaluations;
+        betaCutoffs += other.betaCutoffs;
+        tableProbes += other.tableProbes;
+        tableHits += other.tableHits;
+        tableCutoffs += other.tableCutoffs;
+        probCutTries += other.probCutTries;
+        probCuts += other.probCuts;
+        for (int i = 0; i < CUTOFF_SLOTS; i++)
+            cutoffsByMoveIndex[i] += other.cutoffsByMoveIndex[i];
+        for (int i = 0; i < iterationNodes.length; i++)
+            iterationNodes[i] += other.iterationNodes[i];
+    }
+
+    public long nodes() {
+        return nodes;
+    }
+
+    public long leafEvaluations() {
+        return leafEvaluations;
+    }
+
+    public long betaCutoffs() {
+        return betaCutoffs;
+    }
+
+    // Cutoffs caused by the move searched at 'index' (0 is the first); the last slot counts
+    // every later one too
+    public long cutoffsAt(int index) {
+        return cutoffsByMoveIndex[Math.min(index, CUTOFF_SLOTS - 1)];
+    }
+
+    // Share of cutoffs the first move produced: how good the move ordering is
+    public double firstMoveCutoffRate() {
+        return betaCutoffs == 0 ? 0 : (double) cutoffsByMoveIndex[0] / betaCutoffs;
+    }
+
+    public long tableProbes() {
+        return tableProbes;
+    }
+
+    public long tableHits() {
+        return tableHits;
+    }
+
+    public long tableCutoffs() {
+        return tableCutoffs;
+    }
+
+    public long probCutTries() {
+        return probCutTries;
+    }
+
+    public long probCuts() {
+        return probCuts;
+    }
+
+    public double tableHitRate() {
+        return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+    }
+
+    // Search.MAX_DEPTH for an endgame solve
+    public int completedDepth() {
+        return completedDepth;
+    }
+
+    // Time and nodes (all threads) of the iteration to 'depth'; 0 if it did not run
+    public long iterationNanos(int depth) {
+        return iterationNanos[depth];
+    }
+
+    public long iterationNodes(int depth) {
+        return iterationNodes[depth];
+    }
+
+    public long nanos() {
+        return nanos;
+    }
+
+    public long nodesPerSecond() {
+        return nanos == 0 ? 0 : (long) (nodes * 1e9 / nanos);
+    }
+
+    // One line for logs and status bars
+    @Override
+    public String toString() {
+        if (!ENABLED)
+            return "search stats off";
+        String depth = completedDepth >= Search.MAX_DEPTH ? "solved" : "depth " + completedDepth;
+        String probCut = probCutTries == 0 ? "" : String.format(Locale.ROOT, ", probcut %,d of %,d", probCuts, probCutTries);
+        return String.format(Locale.ROOT, "%s, %,d nodes, %,d knps, %,d evals, %,d cutoffs (%.0f%% first move),"
+                + " table %.0f%% hits of %,d probes%s, %d ms", depth, nodes, nodesPerSecond() / 1000, leafEvaluations,
+                betaCutoffs, 100 * firstMoveCutoffRate(), 100 * tableHitRate(), tableProbes, probCut, nanos / 1_000_000);
+    }
+}
@@ -0,0 +1,98 @@
+package engine;
+
+import java.util.Arrays;
+
+// Fixed-size hash table of search results, stored in two primitive arrays. Each bucket holds two
+// entries: the first keeps the deepest result (replaced only by an equal or deeper search, or by
+// anything once it is left over from an earlier search), the second is always overwritten.
+//
+// An entry is packed into one long: move (bits 0-7), depth (8-15), bound (16-17), a valid flag
+// (18), search generation (24-31) and score (32-63). A probe returns that long, or 0 on a miss.
+//
+// The table is shared by parallel searches without locking. Each slot stores hash ^ entry next to
+// the entry, so a slot torn by two threads writing at once fails the key check instead of
+// returning another position's result.
+public final class TranspositionTable {
+
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+
+    public static final int NO_MOVE = 255;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final long VALID = 1L << 18;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    private int generation;
+
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max(2L, ((long) megabytes << 20) / ENTRY_BYTES);
+        int buckets = Integer.highestOneBit((int) Math.min(entries / 2, 1 << 29));
+        keys = new long[buckets * 2];
+        data = new long[buckets * 2];
+        bucketMask = buckets - 1;
+    }
+
+    public int sizeMB() {
+        return (int) (((long) keys.length * ENTRY_BYTES) >> 20);
+    }
+
+    // Call before each new root search so older entries lose their claim on the deep slot
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    public long probe(long hash) {
+        int i = index(hash);
+        long entry = data[i];
+        if (entry != 0 && (keys[i] ^ entry) == hash)
+            return entry;
+        entry = data[i + 1];
+        if (entry != 0 && (keys[i + 1] ^ entry) == hash)
+            return entry;
+        return 0;
+    }
+
+    public void store(long hash, int depth, int bound, int score, int move) {
+        int i = index(hash);
+        long deep = data[i];
+        if (deep != 0 && (keys[i] ^ deep) != hash && depth < depth(deep) && generation(deep) == generation)
+            i++;
+        long entry = ((long) score << 32) | ((long) generation << 24) | VALID
+                | ((long) bound << 16) | ((long) Math.min(depth, 255) << 8) | (move & 0xFF);
+        keys[i] = hash ^ entry;
+        data[i] = entry;
+    }
+
+    private int index(long hash) {
+        return ((int) (hash ^ (hash >>> 32)) & bucketMask) << 1;
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & 0xFF);
+    }
+
+    public static int depth(long entry) {
+        return (int) ((entry >>> 8) & 0xFF);
+    }
+
+    public static int bound(long entry) {
+        return (int) ((entry >>> 16) & 0x3);
+    }
+
+    public static int score(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    private static int generation(long entry) {
+        return (int) ((entry >>> 24) & 0xFF);
+    }
+}
@@ -0,0 +1,262 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// A game database in the WTHOR format of the French Othello federation (the yearly WTH_*.wtb
+// files), mapped into memory rather than read. Opening one parses only the header; a game is
+// decoded when it is replayed, straight from the mapping into a caller's Replay, so going through
+// millions of games allocates nothing per game.
+//
+// File layout (little-endian): a 16-byte header (creation date, int game count, short record
+// count, short year of the games, byte board size, byte game type, byte depth of the theoretical
+// score, byte reserved), then 68 bytes per game: short tournament, short black player, short white
+// player, byte black's discs at the end, byte black's discs with perfect play from 'depth' empties,
+// and 60 move bytes of 10 * row + column (11 is a1, 88 is h8), 0 after the last one. Passes are not
+// recorded: a side whose move is not legal must have passed.
+public final class WthorDatabase {
+
+    public static final int HEADER_BYTES = 16;
+    public static final int GAME_BYTES = 68;
+    public static final int MAX_MOVES = 60;
+    private static final int MOVES_OFFSET = 8;
+    // Games handed to a thread at a time by positions()
+    private static final int CHUNK_GAMES = 1024;
+
+    // What positions() hands each position to: the discs and side to move, the move that was
+    // played, and the game's final disc difference from the side to move's point of view
+    @FunctionalInterface
+    public interface PositionSink {
+        void position(long black, long white, int side, int move, int score);
+
+        // A game whose moves do not replay (an illegal or unreadable move); none of its
+        // positions were passed on
+        default void skipped(int game) {
+        }
+    }
+
+    // The positions of one game, filled by replay(). Position k is the one before the k-th move
+    // on the board; passes are not counted as moves.
+    public static final class Replay {
+        private final long[] black = new long[MAX_MOVES + 1];
+        private final long[] white = new long[MAX_MOVES + 1];
+        private final int[] side = new int[MAX_MOVES + 1];
+        private final int[] move = new int[MAX_MOVES];
+        private int length;
+        private int blackDiscs;
+
+        // Moves played; position(length()) is the last one
+        public int length() {
+            return length;
+        }
+
+        public long black(int k) {
+            return black[k];
+        }
+
+        public long white(int k) {
+            return white[k];
+        }
+
+        public int side(int k) {
+            return side[k];
+        }
+
+        public int move(int k) {
+            return move[k];
+        }
+
+        // Black's discs at the end, as recorded
+        public int blackDiscs() {
+            return blackDiscs;
+        }
+
+        // The final disc difference from the point of view of the side to move at position k
+        public int score(int k) {
+            int diff = 2 * blackDiscs - Bitboard.SQUARES;
+            return side[k] == Position.BLACK ? diff : -diff;
+        }
+    }
+
+    private final ByteBuffer games;
+    private final int size;
+    private final int year;
+    private final int theoreticalDepth;
+
+    private WthorDatabase(ByteBuffer games, int size, int year, int theoreticalDepth) {
+        this.games = games;
+        this.size = size;
+        this.year = year;
+        this.theoreticalDepth = theoreticalDepth;
+    }
+
+    public static WthorDatabase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.limit() < HEADER_BYTES)
+                throw new IOException("not a WTHOR game file: " + file);
+            int boardSize = map.get(12);
+            if (boardSize != 0 && boardSize != Bitboard.SIZE)
+                throw new IOException("not an 8x8 game file: " + file);
+            int size = map.getInt(4);
+            if (size < 0 || map.limit() < HEADER_BYTES + (long) size * GAME_BYTES)
+                throw new IOException("truncated WTHOR game file: " + file);
+            return new WthorDatabase(map, size, Short.toUnsignedInt(map.getShort(10)), map.get(14));
+        }
+    }
+
+    // Number of games
+    public int size() {
+        return size;
+    }
+
+    // The year the games were played
+    public int year() {
+        return year;
+    }
+
+    // Empties from which theoreticalScore() is perfect play
+    public int theoreticalDepth() {
+        return theoreticalDepth;
+    }
+
+    // Index into the federation's tournament and player files
+    public int tournament(int game) {
+        return Short.toUnsignedInt(games.getShort(offset(game)));
+    }
+
+    public int blackPlayer(int game) {
+        return Short.toUnsignedInt(games.getShort(offset(game) + 2));
+    }
+
+    public int whitePlayer(int game) {
+        return Short.toUnsignedInt(games.getShort(offset(game) + 4));
+    }
+
+    // Black's discs at the end of the game, empties going to the winner
+    public int blackDiscs(int game) {
+        return Byte.toUnsignedInt(games.get(offset(game) + 6));
+    }
+
+    public int theoreticalScore(int game) {
+        return Byte.toUnsignedInt(games.get(offset(game) + 7));
+    }
+
+    private int offset(int game) {
+        if (game < 0 || game >= size)
+            throw new IndexOutOfBoundsException("no game " + game + " in a database of " + size);
+        return HEADER_BYTES + game * GAME_BYTES;
+    }
+
+    // Plays 'game' from the starting position into 'replay', passing wherever the side to move's
+    // recorded move is not legal for it but is for the other side. Returns false, with 'replay'
+    // holding the moves up to the bad one, if a move is legal for neither side.
+    public boolean replay(int game, Replay replay) {
+        int base = offset(game);
+        replay.blackDiscs = Byte.toUnsignedInt(games.get(base + 6));
+        long own = Bitboard.bit(3, 4) | Bitboard.bit(4, 3), opp = Bitboard.bit(3, 3) | Bitboard.bit(4, 4);
+        int side = Position.BLACK;
+        int k = 0;
+        for (; k < MAX_MOVES; k++) {
+            replay.black[k] = side == Position.BLACK ? own : opp;
+            replay.white[k] = side == Position.BLACK ? opp : own;
+            replay.side[k] = side;
+            int code = games.get(base + MOVES_OFFSET + k);
+            if (code == 0)
+                break;
+            int row = code / 10 - 1, col = code % 10 - 1;
+            if (row < 0 || row >= Bitboard.SIZE || col < 0 || col >= Bitboard.SIZE)
+                return failed(replay, k);
+            int sq = Bitboard.square(row, col);
+            long bit = 1L << sq;
+            if (((own | opp) & bit) != 0)
+                return failed(replay, k);
+            long flipped = Bitboard.flips(own, opp, sq);
+            if (flipped == 0) {
+                // Not a move for the side to move: the other side's, after a pass
+                if (Bitboard.hasMove(own, opp) || (flipped = Bitboard.flips(opp, own, sq)) == 0)
+                    return failed(replay, k);
+                long t = own;
+                own = opp;
+                opp = t;
+                side ^= 1;
+                replay.black[k] = side == Position.BLACK ? own : opp;
+                replay.white[k] = side == Position.BLACK ? opp : own;
+                replay.side[k] = side;
+            }
+            replay.move[k] = sq;
+            long next = opp & ~flipped;
+            opp = own | bit | flipped;
+            own = next;
+            side ^= 1;
+        }
+        if (k == MAX_MOVES) {
+            replay.black[k] = side == Position.BLACK ? own : opp;
+            replay.white[k] = side == Position.BLACK ? opp : own;
+            replay.side[k] = side;
+        }
+        replay.length = k;
+        return true;
+    }
+
+    private static boolean failed(Replay replay, int k) {
+        replay.length = k;
+        return false;
+    }
+
+    // Replays every game on 'threads' threads and hands each position before a move, with the
+    // game's result, to a sink of the thread's own, made by 'sinks' on that thread, so sinks need
+    // no synchronization. Games are dealt out in chunks as threads become free. Returns the sinks
+    // for the caller to combine.
+    public <S extends PositionSink> List<S> positions(int threads, Supplier<S> sinks)
+            throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        List<Callable<S>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++)
+            tasks.add(() -> drain(next, sinks.get()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<S> result = new ArrayList<>();
+            for (Future<S> f : pool.invokeAll(tasks))
+                result.add(f.get());
+            return result;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private <S extends PositionSink> S drain(AtomicInteger next, S sink) {
+        Replay replay = new Replay();
+        for (int first; (first = next.getAndAdd(CHUNK_GAMES)) < size; ) {
+            int last = Math.min(size, first + CHUNK_GAMES);
+            for (int game = first; game < last; game++) {
+                if (!replay(game, replay)) {
+                    sink.skipped(game);
+                    continue;
+                }
+                for (int k = 0; k < replay.length; k++)
+                    sink.position(replay.black[k], replay.white[k], replay.side[k], replay.move[k], replay.score(k));
+            }
+        }
+        return sink;
+    }
+}
@@ -0,0 +1,43 @@
+package engine;
+
+import java.util.SplittableRandom;
+
+// Zobrist keys: a position hash is the XOR of one key per occupied (color, square) plus SIDE
+// when white is to move. Keys come from a fixed seed so hashes are stable between runs.
+public final class Zobrist {
+
+    static final long[][] DISC = new long[2][Bitboard.SQUARES];
+    // DISC[BLACK][sq] ^ DISC[WHITE][sq], the change in hash when the disc on sq turns over
+    static final long[] FLIP = new long[Bitboard.SQUARES];
+    static final long SIDE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x07e110L);
+        for (int color = 0; color < 2; color++)
+            for (int sq = 0; sq < Bitboard.SQUARES; sq++)
+                DISC[color][sq] = random.nextLong();
+        for (int sq = 0; sq < Bitboard.SQUARES; sq++)
+            FLIP[sq] = DISC[0][sq] ^ DISC[1][sq];
+        SIDE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long hash(long black, long white, int side) {
+        long h = side == Position.WHITE ? SIDE : 0;
+        for (long b = black; b != 0; b &= b - 1)
+            h ^= DISC[Position.BLACK][Long.numberOfTrailingZeros(b)];
+        for (long w = white; w != 0; w &= w - 1)
+            h ^= DISC[Position.WHITE][Long.numberOfTrailingZeros(w)];
+        return h;
+    }
+
+    // Hash change from turning over every disc in 'flipped'
+    static long flips(long flipped) {
+        long h = 0;
+        for (; flipped != 0; flipped &= flipped - 1)
+            h ^= FLIP[Long.numberOfTrailingZeros(flipped)];
+        return h;
+    }
+}
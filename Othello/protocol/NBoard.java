@@ -0,0 +1,379 @@
+package protocol;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import engine.Bitboard;
+import engine.Engine;
+import engine.Game;
+import engine.MoveLog;
+import engine.Position;
+import engine.Search;
+import engine.SearchResult;
+
+// The engine on stdin/stdout, speaking the NBoard protocol, so that NBoard and other GUIs or
+// analysis tools can run it as a subprocess. Only the engine package is used: AWT is never loaded.
+//
+// Commands: nboard, set depth, set game (GGF), set contempt (ignored), move, go, hint, analyze,
+// ping, learn, quit. Two extensions: "set movetime <ms>" searches by time instead of depth, and
+// "stop" makes a running go, hint or analyze answer with what it has. While searching, "go"
+// streams a status line per iteration: depth, score in discs, principal variation and speed.
+//
+// Commands are handled in order on one thread; a reader thread queues them and stops a running
+// search early when ping, stop or quit arrives, since the GUI is then waiting for an answer.
+//
+// Usage: java protocol.NBoard [threads] [hashMB]
+public class NBoard {
+
+    private static final String NAME = "Othello";
+    private static final int DEFAULT_DEPTH = 12;
+
+    private final PrintStream out;
+    private final Engine engine;
+    private final BlockingQueue<String> commands = new LinkedBlockingQueue<>();
+    // Set while go, hint or analyze runs; 'interrupted' once a command arrives that must stop it
+    private volatile boolean searching;
+    private volatile boolean interrupted;
+
+    // The game: its starting position and the moves since, passes included
+    private MoveLog log = new MoveLog();
+
+    private int depth = DEFAULT_DEPTH;
+    private long moveTime;
+
+    public NBoard(PrintStream out, Engine engine) {
+        this.out = out;
+        this.engine = engine;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int hashMB = args.length > 1 ? Integer.parseInt(args[1]) : Engine.DEFAULT_HASH_MB;
+        PrintStream out = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+        Engine engine = new Engine(threads, hashMB);
+        try {
+            new NBoard(out, engine).run(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    public void run(BufferedReader in) throws InterruptedException {
+        Thread reader = new Thread(() -> read(in), "nboard-input");
+        reader.setDaemon(true);
+        reader.start();
+        while (true) {
+            String line = commands.take();
+            if (line.equals("quit"))
+                return;
+            try {
+                handle(line);
+            } catch (IllegalArgumentException e) {
+                // A bad command must not take the engine down; tell the GUI and carry on
+                send("status error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void read(BufferedReader in) {
+        try {
+            for (String line; (line = in.readLine()) != null; ) {
+                line = line.trim();
+                if (line.isEmpty())
+                    continue;
+                if (searching && (line.equals("stop") || line.equals("quit") || line.startsWith("ping"))) {
+                    interrupted = true;
+                    engine.stop();
+                }
+                commands.add(line);
+            }
+        } catch (IOException e) {
+            // Treated like end of input
+        }
+        interrupted = true;
+        engine.stop();
+        commands.add("quit");
+    }
+
+    private void handle(String line) {
+        String[] words = line.split("\\s+");
+        switch (words[0]) {
+            case "nboard":
+                send("set myname " + NAME);
+                break;
+            case "set":
+                set(words, line);
+                break;
+            case "move":
+                log.play(MoveLog.parseMove(argument(words, 1).split("/")[0]));
+                break;
+            case "go":
+            case "hint":
+            case "analyze":
+                // A stop left over from the last search must not end this one, and one read from
+                // now on must: cleared before the reader can see that a search is running
+                engine.clearStop();
+                interrupted = false;
+                searching = true;
+                try {
+                    if (words[0].equals("go"))
+                        go();
+                    else if (words[0].equals("hint"))
+                        hint(Integer.parseInt(argument(words, 1)));
+                    else
+                        analyze();
+                } finally {
+                    searching = false;
+                }
+                break;
+            case "ping":
+                send("pong " + argument(words, 1));
+                break;
+            case "learn":
+                send("learned");
+                break;
+            case "stop":
+                // Only matters while searching, and the reader has already passed it on
+                break;
+            default:
+                send("status unknown command: " + words[0]);
+        }
+    }
+
+    private void set(String[] words, String line) {
+        switch (argument(words, 1)) {
+            case "depth":
+                depth = Math.max(1, Math.min(Search.MAX_DEPTH, Integer.parseInt(argument(words, 2))));
+                break;
+            case "movetime":
+                moveTime = Math.max(0, Long.parseLong(argument(words, 2)));
+                break;
+            case "game":
+                log = MoveLog.fromGgf(line.substring(line.indexOf("game") + 4).trim());
+                break;
+            case "contempt":
+                break;
+            default:
+                send("status unknown setting: " + words[1]);
+        }
+    }
+
+    // Answers "=== <move>/<score in discs>/<seconds>". The move is not played: the GUI sends it
+    // back with "move" once it has accepted it.
+    private void go() {
+        Game game = log.game();
+        if (game.isOver())
+            throw new IllegalArgumentException("the game is over");
+        if (game.mustPass()) {
+            send("=== PA");
+            return;
+        }
+        long start = System.nanoTime();
+        // The speed counts every thread and every iteration so far, abandoned ones included
+        engine.setListener((iterationDepth, move, score, nodes) -> {
+            boolean solved = iterationDepth >= Search.MAX_DEPTH;
+            send(String.format(Locale.ROOT, "status depth %s score %+.2f pv %s nps %d",
+                    solved ? "solved" : String.valueOf(iterationDepth), engine.discScore(score, solved),
+                    line(engine.principalVariation(move, iterationDepth)), nps(engine.searchedNodes(), start)));
+        });
+        SearchResult result = search(game);
+        engine.setListener(null);
+        send(String.format(Locale.ROOT, "nodestats %d %.3f", result.nodes(), seconds(start)));
+        send(String.format(Locale.ROOT, "=== %s/%.2f/%.3f", square(result.move()), discScore(result), seconds(start)));
+    }
+
+    // The best 'count' moves, refined one depth at a time: every move's score is searched on the
+    // position after it, and each finished depth sends a "search" line per move. With a movetime
+    // the whole hint gets that long, and the search running when it is up is stopped.
+    private void hint(int count) {
+        Game game = log.game();
+        if (game.isOver() || game.mustPass())
+            return;
+        send("status Thinking");
+        long start = System.nanoTime();
+        Thread timer = moveTime > 0 ? stopAfter(moveTime) : null;
+        try {
+            hint(game, count, start);
+        } finally {
+            if (timer != null)
+                cancel(timer);
+        }
+        send("status");
+    }
+
+    private void hint(Game game, int count, long start) {
+        long nodes = 0;
+        List<Integer> candidates = new ArrayList<>();
+        for (long m = game.legalMoves(); m != 0; m &= m - 1)
+            candidates.add(Long.numberOfTrailingZeros(m));
+        double[] scores = new double[Bitboard.SQUARES];
+        String[] lines = new String[Bitboard.SQUARES];
+        String[] depths = new String[Bitboard.SQUARES];
+        for (int d = 2; d <= depth && !stopped(start); d++) {
+            for (int move : candidates) {
+                Game child = childGame(game, move);
+                SearchResult result = null;
+                double score;
+                String pv = square(move);
+                boolean exact;
+                if (child.isOver()) {
+                    score = finalScore(child, game.sideToMove());
+                    exact = true;
+                } else {
+                    // After a pass the mover is to move again, so the score keeps its sign
+                    boolean passed = child.mustPass();
+                    if (passed)
+                        child.play(Position.PASS);
+                    result = engine.search(child, d - 1);
+                    if (stopped(start) && result.depth() == 0)
+                        break;
+                    score = passed ? discScore(result) : -discScore(result);
+                    pv += (passed ? "PA" : "") + line(result.principalVariation());
+                    exact = result.solved();
+                    nodes += result.nodes();
+                }
+                scores[move] = score;
+                lines[move] = pv;
+                depths[move] = exact ? "100%" : String.valueOf(result.depth() + 1);
+            }
+            candidates.sort((a, b) -> Double.compare(scores[b], scores[a]));
+            for (int i = 0; i < Math.min(count, candidates.size()); i++) {
+                int move = candidates.get(i);
+                if (lines[move] != null)
+                    send(String.format(Locale.ROOT, "search %s %.2f 0 %s %d nps", lines[move], scores[move],
+                            depths[move], nps(nodes, start)));
+            }
+            if (allExact(candidates, depths))
+                break;
+        }
+    }
+
+    // "analysis <move number> <score in discs>" for every position of the game, last first, each
+    // scored for the side to move
+    private void analyze() {
+        send("status Analyzing");
+        long start = System.nanoTime();
+        for (int i = log.ply(); i >= 0 && !stopped(start); i--) {
+            Game position = log.gameAt(i);
+            double score;
+            if (position.isOver())
+                score = finalScore(position, position.sideToMove());
+            else if (position.mustPass())
+                continue;
+            else
+                score = discScore(search(position, depth));
+            send(String.format(Locale.ROOT, "analysis %d %.2f", i, score));
+        }
+        send("status");
+    }
+
+    private SearchResult search(Game position) {
+        return search(position, depth);
+    }
+
+    private SearchResult search(Game position, int searchDepth) {
+        return moveTime > 0 ? engine.searchInTime(position, moveTime) : engine.search(position, searchDepth);
+    }
+
+    // Between the searches of hint and analyze: has a stop arrived, or is the time up?
+    private boolean stopped(long start) {
+        return interrupted || moveTime > 0 && System.nanoTime() - start >= moveTime * 1_000_000;
+    }
+
+    // Stops the engine once 'millis' has passed, unless cancelled first
+    private Thread stopAfter(long millis) {
+        Thread timer = new Thread(() -> {
+            try {
+                Thread.sleep(millis);
+                engine.stop();
+            } catch (InterruptedException e) {
+                // Cancelled
+            }
+        }, "nboard-movetime");
+        timer.setDaemon(true);
+        timer.start();
+        return timer;
+    }
+
+    // Once this returns the timer can no longer stop anything. A stop it did make stands until
+    // the next search clears it.
+    private static void cancel(Thread timer) {
+        timer.interrupt();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                timer.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private static Game childGame(Game game, int move) {
+        Game child = new Game(game.discs(Position.BLACK), game.discs(Position.WHITE), game.sideToMove());
+        child.play(move);
+        return child;
+    }
+
+    // Disc difference of a finished game for 'color', empty squares going to the winner as the
+    // endgame solver counts them
+    private static int finalScore(Game game, int color) {
+        int own = game.count(color), opp = game.count(color ^ 1);
+        int empties = Bitboard.SQUARES - own - opp;
+        return own - opp + (own > opp ? empties : own < opp ? -empties : 0);
+    }
+
+    private static boolean allExact(List<Integer> candidates, String[] depths) {
+        for (int move : candidates)
+            if (!"100%".equals(depths[move]))
+                return false;
+        return true;
+    }
+
+    private double discScore(SearchResult result) {
+        return engine.discScore(result.score(), result.solved());
+    }
+
+    // "F5", or "PA" for a pass
+    private static String square(int move) {
+        return move == Position.PASS ? "PA" : Bitboard.name(move).toUpperCase(Locale.ROOT);
+    }
+
+    private static String line(int[] pv) {
+        StringBuilder sb = new StringBuilder();
+        for (int move : pv)
+            sb.append(square(move));
+        return sb.toString();
+    }
+
+    private static String argument(String[] words, int i) {
+        if (i >= words.length)
+            throw new IllegalArgumentException("missing argument to " + words[0]);
+        return words[i];
+    }
+
+    private static double seconds(long start) {
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    private static long nps(long nodes, long start) {
+        return (long) (nodes / Math.max(1e-9, seconds(start)));
+    }
+
+    private void send(String message) {
+        synchronized (out) {
+            out.println(message);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import engine.Bitboard;
+import engine.Game;
+import engine.MoveLog;
+import engine.Position;
+import engine.SearchResult;
+
+// Hosts human-against-engine games over TCP, one game per connection. Every session runs on its
+// own virtual thread, so thousands of mostly idle sessions cost little; the engine's moves are
+// searched by a shared SearchScheduler, whose fixed pool of workers bounds the CPU they use.
+//
+// The protocol is one command per line, each answered by one line:
+//   new [black|white]   starts a game with the human playing that color (black by default)
+//   move <square>|pass  plays the human's move, e.g. "move f5"; "pass" when there is none
+//   budget <millis>     sets the engine's time per move, queue time included ("ok <millis>")
+//   board               shows the position
+//   quit                ends the session
+// new, move and board answer "ok <engine move> <board> <turn>": the engine's reply ("-" for
+// none), the 64 squares from a1 to h8 ('*' black, 'O' white, '-' empty), and '*' or 'O' for the
+// side to move, or "over". When every worker is taken and the queue is full the answer is
+// "busy" and nothing was played: the client should send the same command again a little later.
+// Anything else is answered "error <reason>", "error search failed: <reason>" when the engine
+// could not find its move (also while the server shuts down); nothing was played then either.
+//
+// Usage: java server.GameServer [port=7447] [workers] [queue] [budget=100] [hash=64]
+public final class GameServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 7447;
+    public static final long DEFAULT_BUDGET_MILLIS = 100;
+    public static final long MAX_BUDGET_MILLIS = 60_000;
+    // Sessions that send nothing for this long are closed
+    private static final int IDLE_TIMEOUT_MILLIS = 10 * 60_000;
+
+    private final SearchScheduler scheduler;
+    private final long defaultBudget;
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread acceptor;
+
+    // Listens on 'port' (0 for any free one) and serves sessions until closed
+    public GameServer(int port, SearchScheduler scheduler, long defaultBudgetMillis) throws IOException {
+        this.scheduler = scheduler;
+        this.defaultBudget = defaultBudgetMillis;
+        serverSocket = new ServerSocket(port);
+        acceptor = Thread.ofPlatform().name("game-server-accept").daemon().start(this::accept);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = DEFAULT_PORT, hashMB = 64;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int queue = -1;
+        long budget = DEFAULT_BUDGET_MILLIS;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0)
+                throw new IllegalArgumentException("expected name=value: " + arg);
+            String name = arg.substring(0, eq), value = arg.substring(eq + 1);
+            switch (name) {
+                case "port": port = Integer.parseInt(value); break;
+                case "workers": workers = Integer.parseInt(value); break;
+                case "queue": queue = Integer.parseInt(value); break;
+                case "budget": budget = Long.parseLong(value); break;
+                case "hash": hashMB = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("unknown option: " + name);
+            }
+        }
+        SearchScheduler scheduler = new SearchScheduler(workers, queue > 0 ? queue : defaultQueue(workers), hashMB);
+        GameServer server = new GameServer(port, scheduler, budget);
+        System.out.printf("listening on port %d, %d search workers%n", server.port(), workers);
+        server.acceptor.join();
+    }
+
+    // Enough to keep every worker busy through a short burst, while a queued request still has a
+    // chance to be searched within its budget
+    public static int defaultQueue(int workers) {
+        return 4 * workers;
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    public SearchScheduler scheduler() {
+        return scheduler;
+    }
+
+    // Stops accepting connections and closes the open ones; the scheduler is left running
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sessions.shutdownNow();
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                sessions.submit(() -> serve(socket));
+            }
+        } catch (IOException e) {
+            // Closed
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+            socket.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            Session session = new Session();
+            for (String line; (line = in.readLine()) != null; ) {
+                line = line.trim();
+                if (line.equals("quit"))
+                    break;
+                if (!line.isEmpty())
+                    out.println(session.handle(line));
+            }
+        } catch (SocketTimeoutException e) {
+            // Idle too long
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+
+    // The game of one connection
+    private final class Session {
+        private Game game;
+        private int humanColor;
+        private long budget = defaultBudget;
+
+        String handle(String line) {
+            String[] words = line.split("\\s+");
+            try {
+                switch (words[0]) {
+                    case "new":
+                        return newGame(words.length > 1 ? words[1] : "black");
+                    case "move":
+                        if (words.length < 2)
+                            return "error missing move";
+                        return move(words[1]);
+                    case "budget":
+                        if (words.length < 2)
+                            return "error missing budget";
+                        budget = Math.max(1, Math.min(MAX_BUDGET_MILLIS, Long.parseLong(words[1])));
+                        return "ok " + budget;
+                    case "board":
+                        return game == null ? "error no game" : reply(null);
+                    default:
+                        return "error unknown command: " + words[0];
+                }
+            } catch (RejectedExecutionException e) {
+                return "busy";
+            } catch (IllegalArgumentException e) {
+                return "error " + e.getMessage();
+            } catch (RuntimeException e) {
+                // Only the search gets here; the game is as it was, so the session goes on
+                return "error search failed: " + e.getMessage();
+            }
+        }
+
+        private String newGame(String color) {
+            int human;
+            if (color.equals("black"))
+                human = Position.BLACK;
+            else if (color.equals("white"))
+                human = Position.WHITE;
+            else
+                return "error unknown color: " + color;
+            String reply = respond(new Game(), human);
+            humanColor = human;
+            return reply;
+        }
+
+        private String move(String text) {
+            if (game == null)
+                return "error no game";
+            if (game.isOver())
+                return "error the game is over";
+            if (game.sideToMove() != humanColor)
+                return "error not your turn";
+            int move = MoveLog.parseMove(text);
+            Game next = new Game(game.discs(Position.BLACK), game.discs(Position.WHITE), game.sideToMove());
+            next.play(move);
+            return respond(next, humanColor);
+        }
+
+        // The engine's move in 'position' if it is the engine's turn. Only once that has been
+        // searched is 'position' made the session's game, so a busy answer changes nothing.
+        private String respond(Game position, int human) {
+            Integer engineMove = null;
+            if (!position.isOver() && position.sideToMove() != human) {
+                engineMove = position.mustPass() ? Position.PASS : search(position);
+                position.play(engineMove);
+            }
+            game = position;
+            return reply(engineMove);
+        }
+
+        // Throws RejectedExecutionException when the scheduler is full, which is worth retrying,
+        // and IllegalStateException when the search failed or the server is shutting down
+        private int search(Game position) {
+            try {
+                SearchResult result = scheduler.submit(position, budget).get();
+                return result.move();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("the server is shutting down");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw new IllegalStateException(cause.getMessage() != null ? cause.getMessage() : cause.toString(), cause);
+            }
+        }
+
+        private String reply(Integer engineMove) {
+            StringBuilder sb = new StringBuilder("ok ");
+            sb.append(engineMove == null ? "-" : Bitboard.name(engineMove)).append(' ');
+            long black = game.discs(Position.BLACK), white = game.discs(Position.WHITE);
+            for (int sq = 0; sq < Bitboard.SQUARES; sq++)
+                sb.append((black >>> sq & 1) != 0 ? '*' : (white >>> sq & 1) != 0 ? 'O' : '-');
+            sb.append(' ').append(game.isOver() ? "over" : game.sideToMove() == Position.BLACK ? "*" : "O");
+            return sb.toString();
+        }
+    }
+}
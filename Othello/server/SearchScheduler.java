@@ -0,0 +1,162 @@
+package server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+import engine.Engine;
+import engine.Game;
+import engine.Position;
+import engine.Search;
+import engine.SearchResult;
+import engine.TranspositionTable;
+
+// Runs the searches of every game session on a fixed pool of worker threads, one single-threaded
+// engine each, all sharing one transposition table. Requests are served first come, first
+// served; a session waits for its answer before asking again, so it never holds more than one
+// place in the queue and a busy session cannot starve the others. The queue is bounded: when it
+// is full submit() refuses the request at once instead of letting waits grow without limit.
+//
+// Each request has a time budget that starts when it is submitted, so time spent queued counts
+// against it. A request whose budget is used up by the time a worker takes it still gets a move,
+// from a one-ply search.
+public final class SearchScheduler {
+
+    // Endgame solves always run to the end, so they are left to requests with time for them
+    public static final int DEFAULT_ENDGAME_EMPTIES = 14;
+    private static final long MIN_ENDGAME_MILLIS = 100;
+    // Less time than this left: answer with a one-ply search instead of searching by time
+    private static final long MIN_SEARCH_MILLIS = 5;
+
+    private static final class Request {
+        final long black, white;
+        final int side;
+        final long submitted;
+        final long deadline;
+        final CompletableFuture<SearchResult> result = new CompletableFuture<>();
+
+        Request(Game game, long budgetMillis) {
+            black = game.discs(Position.BLACK);
+            white = game.discs(Position.WHITE);
+            side = game.sideToMove();
+            submitted = System.nanoTime();
+            deadline = submitted + budgetMillis * 1_000_000;
+        }
+    }
+
+    private final BlockingQueue<Request> queue;
+    private final Engine[] engines;
+    private final Thread[] workers;
+    private final LongAdder served = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder late = new LongAdder();
+    private final LongAdder queuedNanos = new LongAdder();
+    private volatile boolean shutDown;
+
+    // 'workers' search threads, at most 'queueCapacity' requests waiting for them, and a table of
+    // 'hashMB' megabytes shared by all
+    public SearchScheduler(int workers, int queueCapacity, int hashMB) {
+        if (workers < 1 || queueCapacity < 1)
+            throw new IllegalArgumentException("need at least one worker and one queue slot");
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        TranspositionTable table = new TranspositionTable(hashMB);
+        engines = new Engine[workers];
+        this.workers = new Thread[workers];
+        for (int i = 0; i < workers; i++) {
+            engines[i] = new Engine(1, table);
+            Engine engine = engines[i];
+            this.workers[i] = new Thread(() -> work(engine), "search-worker-" + i);
+            this.workers[i].setDaemon(true);
+            this.workers[i].start();
+        }
+    }
+
+    public int workers() {
+        return workers.length;
+    }
+
+    // Queues a search of 'game' that must answer within 'budgetMillis'. Throws
+    // RejectedExecutionException when the queue is full; the caller should retry later. After
+    // shutdown() throws IllegalStateException instead, as retrying will not help.
+    public CompletableFuture<SearchResult> submit(Game game, long budgetMillis) {
+        if (game.legalMoves() == 0)
+            throw new IllegalArgumentException("nothing to search: the side to move has no move");
+        if (shutDown)
+            throw new IllegalStateException("scheduler shut down");
+        Request request = new Request(game, Math.max(0, budgetMillis));
+        if (!queue.offer(request)) {
+            rejected.increment();
+            throw new RejectedExecutionException("all " + workers.length + " search workers are busy");
+        }
+        // A shutdown() that drained the queue just before the offer would leave this one waiting
+        if (shutDown && queue.remove(request))
+            throw new IllegalStateException("scheduler shut down");
+        return request.result;
+    }
+
+    // Requests waiting for a worker
+    public int queued() {
+        return queue.size();
+    }
+
+    public long served() {
+        return served.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    // Requests that had no time left when a worker took them
+    public long late() {
+        return late.sum();
+    }
+
+    // Average time a served request spent in the queue
+    public double averageQueueMillis() {
+        long n = served.sum();
+        return n == 0 ? 0 : queuedNanos.sum() / 1e6 / n;
+    }
+
+    // Stops the workers; requests still queued fail with IllegalStateException
+    public void shutdown() {
+        shutDown = true;
+        for (Thread worker : workers)
+            worker.interrupt();
+        for (Engine engine : engines)
+            engine.stop();
+        for (Request request; (request = queue.poll()) != null; )
+            request.result.completeExceptionally(new IllegalStateException("scheduler shut down"));
+    }
+
+    private void work(Engine engine) {
+        try {
+            while (true) {
+                Request request = queue.take();
+                long now = System.nanoTime();
+                queuedNanos.add(now - request.submitted);
+                long remaining = (request.deadline - now) / 1_000_000;
+                try {
+                    engine.setEndgameEmpties(remaining >= MIN_ENDGAME_MILLIS ? DEFAULT_ENDGAME_EMPTIES : 0);
+                    SearchResult result;
+                    if (remaining >= MIN_SEARCH_MILLIS) {
+                        result = engine.search(request.black, request.white, request.side, Search.MAX_DEPTH, remaining);
+                    } else {
+                        late.increment();
+                        result = engine.search(request.black, request.white, request.side, 1, 0);
+                    }
+                    served.increment();
+                    request.result.complete(result);
+                } catch (RuntimeException e) {
+                    request.result.completeExceptionally(e);
+                }
+            }
+        } catch (InterruptedException e) {
+            // Shut down
+        } finally {
+            engine.shutdown();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// The solver against plain negamax over final scores on positions of random games, and its speed
+// at the default switch-over point on positions of games played by the search
+class EndgameSolverTest {
+
+    private static final long SEED = 5;
+    private static final int POSITIONS = 20;
+    private static final int TIMED_POSITIONS = 10;
+    private static final long SECOND = 1_000_000_000L;
+
+    // The score must be the exact one, and the move one that reaches it
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 2, 3, 4, 5, 6, 7, 8, 9 })
+    void matchesNegamax(int empties) {
+        EndgameSolver solver = new EndgameSolver(1);
+        SplittableRandom random = new SplittableRandom(SEED + empties);
+        for (int i = 0; i < POSITIONS; i++) {
+            Position position = randomPosition(random, empties);
+            long own = position.own(), opp = position.opp();
+            int expected = negamax(own, opp, false);
+            int move = solver.bestMove(own, opp);
+            String where = "own " + Long.toHexString(own) + " opp " + Long.toHexString(opp);
+            assertEquals(expected, solver.bestScore(), where);
+            assertEquals(expected, solver.solve(own, opp), where);
+            if (move != Position.PASS) {
+                long flipped = Bitboard.flips(own, opp, move);
+                assertTrue(flipped != 0, where + " move " + Bitboard.name(move));
+                assertEquals(expected, -negamax(opp & ~flipped, own | flipped | (1L << move), false),
+                        where + " move " + Bitboard.name(move));
+            }
+        }
+    }
+
+    // The AI hands over to the solver at DEFAULT_EMPTIES, so a solve there has to fit in a move's
+    // time. Measured in thread CPU time after a warm-up solve, which keeps a busy machine from
+    // failing the test.
+    @Test
+    void solvesDefaultEmptiesWithinASecondOnAverage() {
+        List<Position> positions = playedPositions(EndgameSolver.DEFAULT_EMPTIES, TIMED_POSITIONS + 1);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        new EndgameSolver().bestMove(positions.get(0).own(), positions.get(0).opp());
+        long total = 0;
+        for (Position position : positions.subList(1, positions.size())) {
+            EndgameSolver solver = new EndgameSolver();
+            long start = threads.getCurrentThreadCpuTime();
+            solver.bestMove(position.own(), position.opp());
+            total += threads.getCurrentThreadCpuTime() - start;
+        }
+        long average = total / TIMED_POSITIONS;
+        assertTrue(average < SECOND, "average solve took " + average / 1_000_000 + " ms");
+    }
+
+    private static Position randomPosition(SplittableRandom random, int empties) {
+        while (true) {
+            Position position = new Position();
+            while (position.empties() > empties) {
+                long moves = position.legalMoves();
+                if (moves == 0) {
+                    if (!Bitboard.hasMove(position.opp(), position.own()))
+                        break;
+                    position.makePass();
+                    continue;
+                }
+                for (int skip = random.nextInt(Bitboard.count(moves)); skip > 0; skip--)
+                    moves &= moves - 1;
+                position.makeMove(Long.numberOfTrailingZeros(moves));
+            }
+            if (position.empties() == empties)
+                return position;
+        }
+    }
+
+    // Positions with a move to play from games of a 3-ply search, one move in five random
+    private static List<Position> playedPositions(int empties, int count) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        Search search = new Search(new TranspositionTable(16));
+        search.setEndgameEmpties(0);
+        List<Position> positions = new ArrayList<>();
+        while (positions.size() < count) {
+            Position position = new Position();
+            while (position.empties() > empties) {
+                long moves = position.legalMoves();
+                if (moves == 0) {
+                    if (!Bitboard.hasMove(position.opp(), position.own()))
+                        break;
+                    position.makePass();
+                    continue;
+                }
+                if (random.nextInt(5) == 0) {
+                    for (int skip = random.nextInt(Bitboard.count(moves)); skip > 0; skip--)
+                        moves &= moves - 1;
+                    position.makeMove(Long.numberOfTrailingZeros(moves));
+                } else {
+                    search.setPosition(position.discs(Position.BLACK), position.discs(Position.WHITE), position.sideToMove());
+                    position.makeMove(search.bestMove(3));
+                }
+            }
+            if (position.empties() == empties && position.legalMoves() != 0)
+                positions.add(position);
+        }
+        return positions;
+    }
+
+    private static int negamax(long own, long opp, boolean passed) {
+        long moves = Bitboard.legalMoves(own, opp);
+        if (moves == 0) {
+            if (passed)
+                return EndgameSolver.finalScore(own, opp);
+            return -negamax(opp, own, true);
+        }
+        int best = Integer.MIN_VALUE;
+        for (; moves != 0; moves &= moves - 1) {
+            int sq = Long.numberOfTrailingZeros(moves);
+            long flipped = Bitboard.flips(own, opp, sq);
+            best = Math.max(best, -negamax(opp & ~flipped, own | flipped | (1L << sq), false));
+        }
+        return best;
+    }
+}
@@ -0,0 +1,177 @@
+package engine;
+
+import java.util.Arrays;
+
+// The AI of the original char[][] panel, kept as it was apart from the Swing parts, to check the
+// bitboard search against. The AI plays white and scores are from its side: the disc difference
+// at the horizon, 100 for a won and -100 for a lost full board, and -1000 or 1000 for a side to
+// move that has no move (the old search did not know passes).
+final class LegacyMinimax {
+
+    static final char PLAYER = '⚫';
+    static final char AI = '⚪';
+    static final char EMPTY = ' ';
+    static final int GRID_SIZE = 8;
+
+    char[][] board = new char[GRID_SIZE][GRID_SIZE];
+
+    // White (the AI) and black (the player) as bitboards
+    LegacyMinimax(long white, long black) {
+        for (int r = 0; r < GRID_SIZE; r++)
+            for (int c = 0; c < GRID_SIZE; c++) {
+                long bit = Bitboard.bit(r, c);
+                board[r][c] = (white & bit) != 0 ? AI : (black & bit) != 0 ? PLAYER : EMPTY;
+            }
+    }
+
+    // Score of every AI move searched to 'depth' plies as AIMove did, by square; Integer.MIN_VALUE if illegal
+    int[] moveScores(int depth) {
+        int[] scores = new int[Bitboard.SQUARES];
+        Arrays.fill(scores, Integer.MIN_VALUE);
+        for (int r = 0; r < GRID_SIZE; r++) {
+            for (int c = 0; c < GRID_SIZE; c++) {
+                if (board[r][c] == EMPTY && isValidMove(r, c, AI)) {
+                    char[][] carboncopy = new char[board.length][];
+                    for (int i = 0; i < board.length; i++)
+                        carboncopy[i] = board[i].clone();
+                    getMove(r, c, AI);
+                    scores[Bitboard.square(r, c)] = minimax(false, Integer.MIN_VALUE, Integer.MAX_VALUE, depth - 1);
+                    board = carboncopy;
+                }
+            }
+        }
+        return scores;
+    }
+
+    char evaluate() {
+        int playerCount = 0;
+        int AICount = 0;
+        for (int r = 0; r < GRID_SIZE; r++)
+            for (int c = 0; c < GRID_SIZE; c++) {
+                if (board[r][c] == EMPTY)
+                    return 'N';
+                if (board[r][c] == PLAYER)
+                    playerCount++;
+                else if (board[r][c] == AI)
+                    AICount++;
+            }
+        if (!hasValidMove(PLAYER) && !hasValidMove(AI)) {
+            if (AICount > playerCount)
+                return AI;
+            if (AICount < playerCount)
+                return PLAYER;
+        }
+        return 'D';
+    }
+
+    int evalFunction() {
+        int playerCount = 0;
+        int AICount = 0;
+        for (int r = 0; r < GRID_SIZE; r++)
+            for (int c = 0; c < GRID_SIZE; c++) {
+                if (board[r][c] == PLAYER)
+                    playerCount++;
+                else if (board[r][c] == AI)
+                    AICount++;
+            }
+        return AICount - playerCount;
+    }
+
+    int minimax(boolean isMax, int alpha, int beta, int depth) {
+        if (depth == 0)
+            return evalFunction();
+        char eval = evaluate();
+        switch (eval) {
+            case PLAYER:
+                return -100;
+            case AI:
+                return 100;
+            case 'D':
+                return evalFunction();
+        }
+        int best = isMax ? -1000 : 1000;
+        for (int r = 0; r < GRID_SIZE; r++) {
+            for (int c = 0; c < GRID_SIZE; c++) {
+                if (board[r][c] == EMPTY && isValidMove(r, c, isMax ? AI : PLAYER)) {
+                    char[][] carboncopy = new char[board.length][];
+                    for (int i = 0; i < board.length; i++) {
+                        carboncopy[i] = board[i].clone();
+                    }
+                    getMove(r, c, isMax ? AI : PLAYER);
+                    int value = minimax(!isMax, alpha, beta, depth - 1);
+                    board = carboncopy;
+                    if (isMax) {
+                        best = Math.max(best, value);
+                        alpha = Math.max(alpha, best);
+                    } else {
+                        best = Math.min(best, value);
+                        beta = Math.min(beta, best);
+                    }
+                    if (beta <= alpha)
+                        return best;
+                }
+            }
+        }
+        return best;
+    }
+
+    void getMove(int r, int c, char player) {
+        board[r][c] = player;
+        for (int moveR = -1; moveR <= 1; moveR++)
+            for (int moveC = -1; moveC <= 1; moveC++)
+                if (moveR != 0 || moveC != 0)
+                    if (canFlip(r, c, moveR, moveC, player))
+                        flip(r, c, moveR, moveC, player);
+    }
+
+    void flip(int r, int c, int moveR, int moveC, char player) {
+        char enemy = (player == PLAYER) ? AI : PLAYER;
+        r += moveR;
+        c += moveC;
+        while (r >= 0 && r < GRID_SIZE && c >= 0 && c < GRID_SIZE && board[r][c] == enemy) {
+            board[r][c] = player;
+            r += moveR;
+            c += moveC;
+        }
+    }
+
+    boolean isValidMove(int r, int c, char player) {
+        if (board[r][c] != EMPTY)
+            return false;
+        for (int moveR = -1; moveR <= 1; moveR++)
+            for (int moveC = -1; moveC <= 1; moveC++)
+                if (moveR != 0 || moveC != 0)
+                    if (canFlip(r, c, moveR, moveC, player))
+                        return true;
+        return false;
+    }
+
+    boolean canFlip(int r, int c, int moveR, int moveC, char player) {
+        char enemy = (player == PLAYER) ? AI : PLAYER;
+        r += moveR;
+        c += moveC;
+        boolean foundEnemy = false;
+        while (r >= 0 && r < GRID_SIZE && c >= 0 && c < GRID_SIZE) {
+            if (board[r][c] == enemy) {
+                foundEnemy = true;
+            } else if (board[r][c] == player) {
+                return foundEnemy;
+            } else {
+                break;
+            }
+            r += moveR;
+            c += moveC;
+        }
+        return false;
+    }
+
+    boolean hasValidMove(char player) {
+        for (int r = 0; r < GRID_SIZE; r++) {
+            for (int c = 0; c < GRID_SIZE; c++) {
+                if (isValidMove(r, c, player))
+                    return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,40 @@
+package engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PrincipalVariationTest {
+
+    // Black (b1) cannot move next to white's corner (a1) and passes; white's c1 ends the game
+    @Test
+    void lineGoesOnThroughAPass() {
+        Search search = new Search(new TranspositionTable(1));
+        search.setEndgameEmpties(0);
+        search.setPosition(Bitboard.bit(0, 1), Bitboard.bit(0, 0), Position.BLACK);
+        int move = search.bestMove(4);
+        assertEquals(Position.PASS, move);
+        assertArrayEquals(new int[] { Position.PASS, Bitboard.square(0, 2) }, search.principalVariation(move, 4));
+        assertEquals(0, search.position().ply());
+    }
+
+    // A line of legal moves from the best one, no longer than the search, that leaves the
+    // position as it was
+    @Test
+    void lineStartsWithTheMoveAndIsLegal() {
+        Search search = new Search(new TranspositionTable(1));
+        search.setSelectivity(Search.FULL_WIDTH);
+        int move = search.bestMove(6);
+        int[] line = search.principalVariation(move, 6);
+        assertTrue(line.length > 1 && line.length <= 6, "length " + line.length);
+        assertEquals(move, line[0]);
+        Position position = new Position();
+        for (int sq : line) {
+            assertTrue((position.legalMoves() & (1L << sq)) != 0, Bitboard.name(sq));
+            position.makeMove(sq);
+        }
+        assertEquals(new Position().hash(), search.position().hash());
+    }
+}
@@ -0,0 +1,92 @@
+package engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+// The bitboard search against the original char[][] minimax: full width, disc evaluation and no
+// endgame solver, on the white-to-move positions of a fixed set of random games. Only positions
+// where the old and new rules agree are compared: no side runs out of moves and the board does
+// not fill up within the horizon (the old search scored a pass as lost and a full board at the
+// horizon by its discs). The score must be the old best score, and the move one the old search
+// scored that high (the move order has changed, so ties may fall the other way).
+class SearchRegressionTest {
+
+    private static final int GAMES = 30;
+    private static final long SEED = 3;
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 2, 3, 4, 5 })
+    void matchesLegacyMinimax(int depth) {
+        TranspositionTable table = new TranspositionTable(16);
+        Search search = new Search(table);
+        search.setEvaluation(Search.DISC_EVAL);
+        search.setSelectivity(Search.FULL_WIDTH);
+        search.setEndgameEmpties(0);
+        List<long[]> positions = positions(depth);
+        assertTrue(positions.size() >= 100, "only " + positions.size() + " positions to compare");
+        for (long[] p : positions) {
+            long black = p[0], white = p[1];
+            int[] legacy = new LegacyMinimax(white, black).moveScores(depth);
+            int legacyBest = Integer.MIN_VALUE;
+            for (int score : legacy)
+                legacyBest = Math.max(legacyBest, score);
+
+            // A fixed-depth search is plain minimax only on its own entries: one left by a deeper
+            // search of an earlier position can answer a shallower probe with its deeper score
+            table.clear();
+            search.setPosition(black, white, Position.WHITE);
+            int move = search.bestMove(depth);
+            String where = "black " + Long.toHexString(black) + " white " + Long.toHexString(white) + " depth " + depth;
+            assertEquals(legacyBest, search.bestScore(), where);
+            assertEquals(legacyBest, legacy[move], where + " move " + Bitboard.name(move));
+        }
+    }
+
+    // Black and white discs of every comparable white-to-move position
+    private static List<long[]> positions(int depth) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<long[]> positions = new ArrayList<>();
+        for (int game = 0; game < GAMES; game++) {
+            Position position = new Position();
+            while (true) {
+                long moves = position.legalMoves();
+                if (moves == 0) {
+                    if (!Bitboard.hasMove(position.opp(), position.own()))
+                        break;
+                    position.makePass();
+                    continue;
+                }
+                if (position.sideToMove() == Position.WHITE && position.empties() > depth
+                        && noPass(position.own(), position.opp(), depth))
+                    positions.add(new long[] { position.discs(Position.BLACK), position.discs(Position.WHITE) });
+                for (int skip = random.nextInt(Bitboard.count(moves)); skip > 0; skip--)
+                    moves &= moves - 1;
+                position.makeMove(Long.numberOfTrailingZeros(moves));
+            }
+        }
+        return positions;
+    }
+
+    // Whether every position less than 'depth' plies below has a move for the side to move
+    private static boolean noPass(long own, long opp, int depth) {
+        if (depth == 0)
+            return true;
+        long moves = Bitboard.legalMoves(own, opp);
+        if (moves == 0)
+            return false;
+        for (; moves != 0; moves &= moves - 1) {
+            int sq = Long.numberOfTrailingZeros(moves);
+            long flipped = Bitboard.flips(own, opp, sq);
+            if (!noPass(opp & ~flipped, own | flipped | 1L << sq, depth - 1))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,94 @@
+package tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import engine.Bitboard;
+import engine.Position;
+
+// The move generator against the known counts from the starting position, and make/undo against
+// the bitboard count and against a position built from scratch
+class PerftTest {
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    @Test
+    void startingPositionMatchesKnownCounts() throws Exception {
+        Position start = new Position();
+        for (int depth = 0; depth <= 11; depth++)
+            assertEquals(Perft.KNOWN[depth], Perft.perft(start.own(), start.opp(), depth, THREADS), "perft " + depth);
+    }
+
+    @Test
+    void makeUndoCountsTheSame() {
+        Position position = new Position();
+        for (int depth = 1; depth <= 8; depth++)
+            assertEquals(Perft.KNOWN[depth], Perft.perft(position, depth), "perft " + depth + " through Position");
+        assertEquals(new Position().hash(), position.hash());
+        assertEquals(0, position.ply());
+    }
+
+    // Black (b1) has no move next to white's corner (a1), so the first ply is a pass; then white's
+    // only move, c1, takes b1 and ends the game, which stays one leaf however deep the count goes
+    @Test
+    void passIsOnePlyAndGameEndIsOneLeaf() throws Exception {
+        long black = Bitboard.bit(0, 1), white = Bitboard.bit(0, 0);
+        Position position = new Position(black, white, Position.BLACK);
+        for (int depth = 0; depth <= 4; depth++) {
+            assertEquals(1, Perft.perft(black, white, depth, 1), "perft " + depth);
+            assertEquals(1, Perft.perft(position, depth), "perft " + depth + " through Position");
+        }
+        assertEquals(Bitboard.bit(0, 2), Bitboard.legalMoves(white, black));
+    }
+
+    // Random games: at every position each move and the pass, made and undone, give back the
+    // same discs, side and hash, and the hash kept up move by move is the one computed afresh
+    @Test
+    void makeUndoRestoresDiscsAndHash() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int game = 0; game < 200; game++) {
+            Position position = new Position();
+            while (true) {
+                long moves = position.legalMoves();
+                if (moves == 0 && !Bitboard.hasMove(position.opp(), position.own()))
+                    break;
+                assertEquals(fresh(position).hash(), position.hash());
+                long black = position.discs(Position.BLACK), white = position.discs(Position.WHITE);
+                int side = position.sideToMove();
+                long hash = position.hash();
+                for (long m = moves; m != 0; m &= m - 1) {
+                    position.makeMove(Long.numberOfTrailingZeros(m));
+                    assertEquals(fresh(position).hash(), position.hash());
+                    position.undoMove();
+                    assertUnchanged(position, black, white, side, hash);
+                }
+                position.makePass();
+                assertEquals(fresh(position).hash(), position.hash());
+                position.undoMove();
+                assertUnchanged(position, black, white, side, hash);
+
+                if (moves == 0) {
+                    position.makePass();
+                } else {
+                    for (int skip = random.nextInt(Bitboard.count(moves)); skip > 0; skip--)
+                        moves &= moves - 1;
+                    position.makeMove(Long.numberOfTrailingZeros(moves));
+                }
+            }
+        }
+    }
+
+    private static Position fresh(Position position) {
+        return new Position(position.discs(Position.BLACK), position.discs(Position.WHITE), position.sideToMove());
+    }
+
+    private static void assertUnchanged(Position position, long black, long white, int side, long hash) {
+        assertEquals(black, position.discs(Position.BLACK));
+        assertEquals(white, position.discs(Position.WHITE));
+        assertEquals(side, position.sideToMove());
+        assertEquals(hash, position.hash());
+    }
+}
@@ -0,0 +1,90 @@
+package tools;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import engine.OpeningBook;
+import engine.Position;
+import engine.Search;
+import engine.TranspositionTable;
+
+// Builds an opening book: every position in the first 'plies' moves of the game, up to symmetry,
+// is searched to 'depth' on a pool of threads (one Search and table each) and its best move is
+// written with OpeningBook.write.
+//
+// Usage: java tools.BookBuilder [plies] [depth] [threads] [file]
+public class BookBuilder {
+
+    private static final int HASH_MB = 16;
+
+    public static void main(String[] args) throws Exception {
+        int plies = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        Path file = Paths.get(args.length > 3 ? args[3] : OpeningBook.DEFAULT_FILE);
+
+        Map<Long, long[]> positions = new LinkedHashMap<>();
+        collect(new Position(), plies, positions);
+        System.out.printf("%d positions in the first %d plies, depth %d, %d threads%n",
+                positions.size(), plies, depth, threads);
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ThreadLocal<Search> searches = ThreadLocal.withInitial(() -> new Search(new TranspositionTable(HASH_MB)));
+        List<Future<int[]>> results = new ArrayList<>();
+        for (long[] p : positions.values()) {
+            results.add(pool.submit(() -> {
+                Search search = searches.get();
+                search.setPosition(p[0], p[1], (int) p[2]);
+                int move = search.bestMove(depth);
+                return new int[] { move, search.bestScore() };
+            }));
+        }
+
+        int size = positions.size();
+        long[] keys = new long[size];
+        int[] moves = new int[size], scores = new int[size], depths = new int[size];
+        int i = 0;
+        try {
+            for (Map.Entry<Long, long[]> e : positions.entrySet()) {
+                long[] p = e.getValue();
+                int[] result = results.get(i).get();
+                keys[i] = e.getKey();
+                moves[i] = OpeningBook.canonicalMove(p[0], p[1], (int) p[2], result[0]);
+                scores[i] = result[1];
+                depths[i] = depth;
+                i++;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        OpeningBook.write(file, keys, moves, scores, depths);
+        System.out.printf("wrote %d entries to %s in %.1f s%n", size, file, (System.nanoTime() - start) / 1e9);
+    }
+
+    // Every position with a move to play after 0..plies moves, by book key so that symmetric
+    // twins are kept (and expanded) once
+    private static void collect(Position position, int plies, Map<Long, long[]> positions) {
+        long moves = position.legalMoves();
+        if (moves == 0)
+            return;
+        long black = position.discs(Position.BLACK), white = position.discs(Position.WHITE);
+        int side = position.sideToMove();
+        if (positions.putIfAbsent(OpeningBook.key(black, white, side), new long[] { black, white, side }) != null)
+            return;
+        if (plies == 0)
+            return;
+        for (; moves != 0; moves &= moves - 1) {
+            position.makeMove(Long.numberOfTrailingZeros(moves));
+            collect(position, plies - 1, positions);
+            position.undoMove();
+        }
+    }
+}
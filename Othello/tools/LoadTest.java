@@ -0,0 +1,216 @@
+package tools;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import engine.Bitboard;
+import engine.Game;
+import engine.Position;
+import server.GameServer;
+import server.SearchScheduler;
+
+// Load generator for server.GameServer: 'sessions' simulated players, each on a virtual thread
+// with its own connection, play 'games' games apiece with random moves, waiting up to 'think'
+// milliseconds before each. The latency of a move runs from sending it to reading the engine's
+// answer, retries after "busy" included, and the percentiles of all of them tell how many
+// sessions a machine can carry at a given budget.
+//
+// Without host= the server runs in this JVM with 'workers' search workers and 'queue' slots, and
+// the scheduler's own counters are printed as well.
+//
+// Usage: java tools.LoadTest [sessions=50] [games=2] [budget=50] [think=0] [seed=1]
+//        [host=] [port=7447] [workers] [queue] [hash=64]
+public class LoadTest {
+
+    // Wait after a "busy" answer before sending the command again, doubled (with jitter, so
+    // refused sessions do not all come back at once) after every further refusal
+    private static final long BUSY_BACKOFF_MILLIS = 5;
+    private static final long MAX_BUSY_BACKOFF_MILLIS = 160;
+
+    public static void main(String[] args) throws Exception {
+        int sessions = 50, games = 2, port = GameServer.DEFAULT_PORT, hashMB = 64, queue = -1;
+        int workers = Runtime.getRuntime().availableProcessors();
+        long budget = 50, think = 0, seed = 1;
+        String host = null;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0)
+                throw new IllegalArgumentException("expected name=value: " + arg);
+            String name = arg.substring(0, eq), value = arg.substring(eq + 1);
+            switch (name) {
+                case "sessions": sessions = Integer.parseInt(value); break;
+                case "games": games = Integer.parseInt(value); break;
+                case "budget": budget = Long.parseLong(value); break;
+                case "think": think = Long.parseLong(value); break;
+                case "seed": seed = Long.parseLong(value); break;
+                case "host": host = value; break;
+                case "port": port = Integer.parseInt(value); break;
+                case "workers": workers = Integer.parseInt(value); break;
+                case "queue": queue = Integer.parseInt(value); break;
+                case "hash": hashMB = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("unknown option: " + name);
+            }
+        }
+
+        GameServer server = null;
+        if (host == null) {
+            SearchScheduler scheduler = new SearchScheduler(workers,
+                    queue > 0 ? queue : GameServer.defaultQueue(workers), hashMB);
+            server = new GameServer(0, scheduler, budget);
+            host = "localhost";
+            port = server.port();
+            System.out.printf("in-process server, %d search workers, queue %d%n", workers,
+                    queue > 0 ? queue : GameServer.defaultQueue(workers));
+        }
+        System.out.printf("%d sessions x %d games, budget %d ms, think up to %d ms -> %s:%d%n",
+                sessions, games, budget, think, host, port);
+
+        LongAdder busy = new LongAdder();
+        long start = System.nanoTime();
+        List<long[]> latencies = new ArrayList<>();
+        try (ExecutorService players = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<long[]>> running = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                SplittableRandom random = new SplittableRandom(seed * 1_000_003 + i);
+                String h = host;
+                int p = port, first = i;
+                long b = budget, t = think;
+                int n = games;
+                running.add(players.submit(() -> play(h, p, n, first, b, t, random, busy)));
+            }
+            for (Future<long[]> f : running)
+                latencies.add(f.get());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int moves = 0;
+        for (long[] l : latencies)
+            moves += l.length;
+        long[] all = new long[moves];
+        int k = 0;
+        for (long[] l : latencies) {
+            System.arraycopy(l, 0, all, k, l.length);
+            k += l.length;
+        }
+        Arrays.sort(all);
+        System.out.printf(Locale.ROOT, "%d engine moves in %.1f s, %.1f moves/s, %d busy answers%n",
+                moves, seconds, moves / seconds, busy.sum());
+        System.out.printf(Locale.ROOT, "latency per move: p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99),
+                all.length == 0 ? 0 : all[all.length - 1] / 1e6);
+        if (server != null) {
+            SearchScheduler scheduler = server.scheduler();
+            System.out.printf(Locale.ROOT, "scheduler: %d searched, %d refused, %d out of time, %.1f ms queued on average%n",
+                    scheduler.served(), scheduler.rejected(), scheduler.late(), scheduler.averageQueueMillis());
+            server.close();
+            scheduler.shutdown();
+        }
+    }
+
+    // One session: plays its games and returns the latency of every engine answer in nanoseconds
+    private static long[] play(String host, int port, int games, int index, long budget, long think,
+            SplittableRandom random, LongAdder busy) throws IOException, InterruptedException {
+        long[] latencies = new long[games * 32];
+        int count = 0;
+        try (Socket socket = new Socket(host, port);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+            socket.setTcpNoDelay(true);
+            send(out, in, "budget " + budget, random, busy);
+            for (int g = 0; g < games; g++) {
+                // Alternate colors between games and between neighbouring sessions
+                String color = ((g + index) & 1) == 0 ? "black" : "white";
+                int human = color.equals("black") ? Position.BLACK : Position.WHITE;
+                long t = System.nanoTime();
+                String reply = send(out, in, "new " + color, random, busy);
+                if (human == Position.WHITE) {
+                    latencies = grow(latencies, count);
+                    latencies[count++] = System.nanoTime() - t;
+                }
+                while (!reply.endsWith("over")) {
+                    Game game = parse(reply);
+                    if (think > 0)
+                        Thread.sleep(random.nextLong(think + 1));
+                    long moves = game.legalMoves();
+                    String move = moves == 0 ? "pass" : Bitboard.name(randomSquare(moves, random));
+                    t = System.nanoTime();
+                    reply = send(out, in, "move " + move, random, busy);
+                    if (searched(reply)) {
+                        latencies = grow(latencies, count);
+                        latencies[count++] = System.nanoTime() - t;
+                    }
+                }
+            }
+            out.println("quit");
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    // The engine answered with a move it had to search, not with "-" or a forced pass
+    private static boolean searched(String reply) {
+        String move = reply.split(" ")[1];
+        return !move.equals("-") && !move.equals("pass");
+    }
+
+    // Sends 'command' until it is not refused as busy and returns the answer
+    private static String send(PrintWriter out, BufferedReader in, String command, SplittableRandom random,
+            LongAdder busy) throws IOException, InterruptedException {
+        for (long backoff = BUSY_BACKOFF_MILLIS; ; backoff = Math.min(2 * backoff, MAX_BUSY_BACKOFF_MILLIS)) {
+            out.println(command);
+            String reply = in.readLine();
+            if (reply == null)
+                throw new IOException("server closed the connection");
+            if (reply.startsWith("ok"))
+                return reply;
+            if (!reply.equals("busy"))
+                throw new IOException(command + ": " + reply);
+            busy.increment();
+            Thread.sleep(backoff / 2 + random.nextLong(backoff));
+        }
+    }
+
+    // The position of an "ok <engine move> <board> <turn>" answer
+    private static Game parse(String reply) {
+        String[] parts = reply.split(" ");
+        long black = 0, white = 0;
+        for (int sq = 0; sq < Bitboard.SQUARES; sq++) {
+            char c = parts[2].charAt(sq);
+            if (c == '*')
+                black |= 1L << sq;
+            else if (c == 'O')
+                white |= 1L << sq;
+        }
+        return new Game(black, white, parts[3].equals("*") ? Position.BLACK : Position.WHITE);
+    }
+
+    private static int randomSquare(long moves, SplittableRandom random) {
+        for (int skip = random.nextInt(Bitboard.count(moves)); skip > 0; skip--)
+            moves &= moves - 1;
+        return Long.numberOfTrailingZeros(moves);
+    }
+
+    private static long[] grow(long[] a, int count) {
+        return count < a.length ? a : Arrays.copyOf(a, 2 * a.length);
+    }
+
+    // In milliseconds
+    private static double percentile(long[] sorted, double q) {
+        if (sorted.length == 0)
+            return 0;
+        int i = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))] / 1e6;
+    }
+}
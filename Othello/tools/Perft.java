@@ -0,0 +1,212 @@
+package tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import engine.Bitboard;
+import engine.Position;
+
+// Perft: counts the move sequences of a given length from a position, to check the move
+// generator against known counts and to time it. A pass is a move like any other, made when the
+// side to move has none; a game that ends before the last ply counts once, as a leaf. At the last
+// ply the moves are counted rather than made.
+//
+// With more than one thread the positions a few plies in (enough to keep every thread busy) are
+// shared out, each thread counting below the ones it takes. "divide" prints the count below each
+// root move; "verify" checks the starting position against the known counts up to 'depth' and
+// against the same count made through Position's makeMove and undoMove, and exits with status 1
+// on a mismatch.
+//
+// Usage: java tools.Perft [depth=10] [threads=<cores>] [board=<64 squares> side=*|O] [divide] [verify]
+//   board: a1 to h8, '*' black, 'O' white, '-' empty, as the game server shows it
+public class Perft {
+
+    // Counts from the starting position, index = depth
+    static final long[] KNOWN = {
+            1L, 4L, 12L, 56L, 244L, 1_396L, 8_200L, 55_092L, 390_216L, 3_005_288L, 24_571_284L,
+            212_258_800L, 1_939_886_636L, 18_429_641_748L, 184_042_084_512L,
+    };
+    // Split until there are this many positions per thread to share out
+    private static final int TASKS_PER_THREAD = 8;
+    // Deepest count verify makes through Position as well
+    private static final int MAX_SLOW_DEPTH = 9;
+
+    public static void main(String[] args) throws Exception {
+        int depth = 10, threads = Runtime.getRuntime().availableProcessors();
+        boolean divide = false, verify = false;
+        Position position = new Position();
+        String board = null;
+        int side = Position.BLACK;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String name = eq < 0 ? arg : arg.substring(0, eq), value = eq < 0 ? "" : arg.substring(eq + 1);
+            switch (name) {
+                case "depth": depth = Integer.parseInt(value); break;
+                case "threads": threads = Integer.parseInt(value); break;
+                case "board": board = value; break;
+                case "side": side = value.equals("O") || value.equalsIgnoreCase("white") ? Position.WHITE : Position.BLACK; break;
+                case "divide": divide = true; break;
+                case "verify": verify = true; break;
+                default: throw new IllegalArgumentException("unknown option: " + name);
+            }
+        }
+        if (board != null)
+            position.set(parse(board, Position.BLACK), parse(board, Position.WHITE), side);
+        long own = position.own(), opp = position.opp();
+
+        if (verify) {
+            if (board != null)
+                throw new IllegalArgumentException("verify counts from the starting position");
+            System.exit(verify(Math.min(depth, KNOWN.length - 1), threads) ? 0 : 1);
+        }
+        if (divide) {
+            long total = 0;
+            long start = System.nanoTime();
+            long moves = Bitboard.legalMoves(own, opp);
+            if (moves == 0) {
+                total = perft(opp, own, depth - 1, threads);
+                System.out.printf("pass %,d%n", total);
+            }
+            for (; moves != 0; moves &= moves - 1) {
+                int sq = Long.numberOfTrailingZeros(moves);
+                long flipped = Bitboard.flips(own, opp, sq);
+                long n = perft(opp & ~flipped, own | flipped | 1L << sq, depth - 1, threads);
+                System.out.printf("%s %,d%n", Bitboard.name(sq), n);
+                total += n;
+            }
+            report(depth, total, System.nanoTime() - start, threads);
+            return;
+        }
+        long start = System.nanoTime();
+        long total = perft(own, opp, depth, threads);
+        report(depth, total, System.nanoTime() - start, threads);
+    }
+
+    private static void report(int depth, long nodes, long nanos, int threads) {
+        System.out.printf(Locale.ROOT, "perft %d: %,d leaves in %.3f s, %.1f M leaves/s on %d thread(s)%n",
+                depth, nodes, nanos / 1e9, nodes * 1e3 / Math.max(1, nanos), threads);
+    }
+
+    // Checks the fast count against KNOWN up to 'depth', and the count through Position against
+    // it up to MAX_SLOW_DEPTH
+    private static boolean verify(int depth, int threads) throws Exception {
+        boolean ok = true;
+        Position position = new Position();
+        for (int d = 1; d <= depth; d++) {
+            long start = System.nanoTime();
+            long fast = perft(position.own(), position.opp(), d, threads);
+            long nanos = System.nanoTime() - start;
+            String slow = "";
+            if (d <= MAX_SLOW_DEPTH) {
+                long n = perft(position, d);
+                slow = n == fast ? ", make/undo agrees" : ", make/undo counts " + n;
+                ok &= n == fast;
+            }
+            boolean match = fast == KNOWN[d];
+            ok &= match;
+            System.out.printf(Locale.ROOT, "perft %2d: %,18d %s%s (%.1f M leaves/s)%n", d, fast,
+                    match ? "ok" : "expected " + String.format(Locale.ROOT, "%,d", KNOWN[d]), slow,
+                    fast * 1e3 / Math.max(1, nanos));
+        }
+        System.out.println(ok ? "all counts match" : "MISMATCH");
+        return ok;
+    }
+
+    // Leaves 'depth' plies below the position, 'own' to move
+    static long perft(long own, long opp, int depth) {
+        long moves = Bitboard.legalMoves(own, opp);
+        if (moves == 0) {
+            if (!Bitboard.hasMove(opp, own))
+                return 1;
+            return depth == 1 ? 1 : perft(opp, own, depth - 1);
+        }
+        if (depth == 1)
+            return Bitboard.count(moves);
+        long nodes = 0;
+        for (; moves != 0; moves &= moves - 1) {
+            int sq = Long.numberOfTrailingZeros(moves);
+            long flipped = Bitboard.flips(own, opp, sq);
+            nodes += perft(opp & ~flipped, own | flipped | 1L << sq, depth - 1);
+        }
+        return nodes;
+    }
+
+    // The same on 'threads' threads
+    static long perft(long own, long opp, int depth, int threads) throws Exception {
+        if (threads <= 1 || depth <= 2)
+            return depth == 0 ? 1 : perft(own, opp, depth);
+        // Expand ply by ply until there is enough to share out; game ends on the way are leaves
+        List<long[]> frontier = new ArrayList<>();
+        frontier.add(new long[] { own, opp });
+        long leaves = 0;
+        int split = 0;
+        while (frontier.size() < TASKS_PER_THREAD * threads && split < depth - 2) {
+            List<long[]> next = new ArrayList<>();
+            for (long[] p : frontier) {
+                long moves = Bitboard.legalMoves(p[0], p[1]);
+                if (moves == 0) {
+                    if (Bitboard.hasMove(p[1], p[0]))
+                        next.add(new long[] { p[1], p[0] });
+                    else
+                        leaves++;
+                }
+                for (; moves != 0; moves &= moves - 1) {
+                    int sq = Long.numberOfTrailingZeros(moves);
+                    long flipped = Bitboard.flips(p[0], p[1], sq);
+                    next.add(new long[] { p[1] & ~flipped, p[0] | flipped | 1L << sq });
+                }
+            }
+            frontier = next;
+            split++;
+        }
+        int remaining = depth - split;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> counts = new ArrayList<>();
+            for (long[] p : frontier)
+                counts.add(pool.submit(() -> perft(p[0], p[1], remaining)));
+            for (Future<Long> f : counts)
+                leaves += f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        return leaves;
+    }
+
+    // The same count through Position, making and undoing every move including the last
+    static long perft(Position position, int depth) {
+        if (depth == 0)
+            return 1;
+        long moves = position.legalMoves();
+        if (moves == 0) {
+            if (!Bitboard.hasMove(position.opp(), position.own()))
+                return 1;
+            position.makePass();
+            long nodes = perft(position, depth - 1);
+            position.undoMove();
+            return nodes;
+        }
+        long nodes = 0;
+        for (; moves != 0; moves &= moves - 1) {
+            position.makeMove(Long.numberOfTrailingZeros(moves));
+            nodes += perft(position, depth - 1);
+            position.undoMove();
+        }
+        return nodes;
+    }
+
+    private static long parse(String board, int color) {
+        if (board.length() != Bitboard.SQUARES)
+            throw new IllegalArgumentException("a board is 64 squares: " + board);
+        char disc = color == Position.BLACK ? '*' : 'O';
+        long discs = 0;
+        for (int sq = 0; sq < Bitboard.SQUARES; sq++)
+            if (board.charAt(sq) == disc)
+                discs |= 1L << sq;
+        return discs;
+    }
+}
@@ -0,0 +1,171 @@
+package tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import engine.Bitboard;
+import engine.PatternEvaluator;
+import engine.Position;
+import engine.ProbCut;
+import engine.Search;
+import engine.TranspositionTable;
+
+// Fits the Multi-ProbCut table in engine.ProbCut. Positions come from self-play at a shallow
+// depth with a share of random moves, so they look like games without repeating one game; each
+// is searched full width to 'depth', and the scores of the iterations give, for every depth d
+// the table covers, the pair (score at ProbCut.shallowDepth(d), score at d). A least-squares line
+// through the pairs of each game phase and depth gives the slope and offset, and the spread of
+// the deep scores around it the standard deviation.
+//
+// The table is printed in the form ProbCut's source keeps it, ready to paste in, with the number
+// of pairs and the correlation of every fit.
+//
+// Usage: java tools.ProbCutCalibration [positions=600] [depth=12] [threads=<cores>] [seed=1]
+public class ProbCutCalibration {
+
+    private static final int HASH_MB = 16;
+    // Self-play: the engine's depth, and how often a random move is played instead
+    private static final int PLAY_DEPTH = 2;
+    private static final double RANDOM_MOVE_RATE = 0.2;
+    // Empty squares the sampled positions are spread over
+    private static final int MIN_EMPTIES = 12;
+    private static final int MAX_EMPTIES = 54;
+
+    public static void main(String[] args) throws Exception {
+        // The run that fitted the table in engine.ProbCut
+        int positions = 600, depth = 12;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0)
+                throw new IllegalArgumentException("expected name=value: " + arg);
+            String name = arg.substring(0, eq), value = arg.substring(eq + 1);
+            switch (name) {
+                case "positions": positions = Integer.parseInt(value); break;
+                case "depth": depth = Integer.parseInt(value); break;
+                case "threads": threads = Integer.parseInt(value); break;
+                case "seed": seed = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("unknown option: " + name);
+            }
+        }
+        int maxDepth = depth;
+        System.out.printf("%d positions searched to depth %d on %d threads%n", positions, maxDepth, threads);
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ThreadLocal<Search> searches = ThreadLocal.withInitial(() -> {
+            Search search = new Search(new TranspositionTable(HASH_MB));
+            search.setEndgameEmpties(0);
+            search.setSelectivity(Search.FULL_WIDTH);
+            return search;
+        });
+        List<Future<int[]>> results = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < positions; i++) {
+            int empties = MIN_EMPTIES + random.nextInt(MAX_EMPTIES - MIN_EMPTIES + 1);
+            long[] p = selfPlay(empties, random.split());
+            results.add(pool.submit(() -> scores(searches.get(), p, maxDepth)));
+        }
+
+        // sums[phase][depth] = { n, x, y, xx, xy, yy }
+        double[][][] sums = new double[ProbCut.PHASES][maxDepth + 1][6];
+        try {
+            for (Future<int[]> f : results) {
+                int[] scores = f.get();
+                int phase = ProbCut.phase(scores[0]);
+                for (int d = ProbCut.MIN_DEPTH; d <= maxDepth; d++) {
+                    int s = ProbCut.shallowDepth(d);
+                    if (d > scores[0])
+                        break;
+                    double x = scores[s], y = scores[d];
+                    // A line that reached the end of the game scores as a win, off the scale
+                    if (Math.abs(x) > PatternEvaluator.MAX_SCORE || Math.abs(y) > PatternEvaluator.MAX_SCORE)
+                        continue;
+                    double[] t = sums[phase][d];
+                    t[0]++;
+                    t[1] += x;
+                    t[2] += y;
+                    t[3] += x * x;
+                    t[4] += x * y;
+                    t[5] += y * y;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        System.out.printf(Locale.ROOT, "searched in %.1f s%n", (System.nanoTime() - start) / 1e9);
+
+        System.out.println("    private static final double[][][] FIT = {");
+        for (int phase = 0; phase < ProbCut.PHASES; phase++) {
+            System.out.printf("            { // phase %d%n", phase);
+            for (int d = ProbCut.MIN_DEPTH; d <= maxDepth; d++) {
+                double[] t = sums[phase][d];
+                double n = t[0];
+                double a = 1, b = 0, sigma = 0, r = 0;
+                if (n >= 3) {
+                    double sxx = t[3] - t[1] * t[1] / n, sxy = t[4] - t[1] * t[2] / n, syy = t[5] - t[2] * t[2] / n;
+                    a = sxx == 0 ? 1 : sxy / sxx;
+                    b = (t[2] - a * t[1]) / n;
+                    sigma = Math.sqrt(Math.max(0, (syy - a * sxy) / (n - 2)));
+                    r = sxx == 0 || syy == 0 ? 0 : sxy / Math.sqrt(sxx * syy);
+                }
+                System.out.printf(Locale.ROOT, "                    { %.3f, %.2f, %.2f }, // depth %d from %d: %d pairs, r %.3f%n",
+                        a, b, sigma, d, ProbCut.shallowDepth(d), (int) n, r);
+            }
+            System.out.println("            },");
+        }
+        System.out.println("    };");
+    }
+
+    // Empty squares, then the root score of every iteration 1..depth (deeper ones stay 0 when the
+    // game ends sooner)
+    private static int[] scores(Search search, long[] p, int depth) {
+        int[] scores = new int[depth + 1];
+        search.transpositionTable().clear();
+        search.setPosition(p[0], p[1], (int) p[2]);
+        search.setListener((d, move, score, nodes) -> scores[d] = score);
+        search.bestMove(Math.min(depth, search.position().empties()));
+        scores[0] = search.position().empties();
+        return scores;
+    }
+
+    // A position with 'empties' empty squares and a move to play, from a noisy self-play game
+    private static long[] selfPlay(int empties, SplittableRandom random) {
+        Search player = new Search();
+        player.setEndgameEmpties(0);
+        player.setSelectivity(Search.FULL_WIDTH);
+        while (true) {
+            Position position = new Position();
+            boolean over = false;
+            while (position.empties() > empties) {
+                long moves = position.legalMoves();
+                if (moves == 0) {
+                    if (!Bitboard.hasMove(position.opp(), position.own())) {
+                        over = true;
+                        break;
+                    }
+                    position.makePass();
+                    continue;
+                }
+                int move;
+                if (random.nextDouble() < RANDOM_MOVE_RATE) {
+                    for (int skip = random.nextInt(Bitboard.count(moves)); skip > 0; skip--)
+                        moves &= moves - 1;
+                    move = Long.numberOfTrailingZeros(moves);
+                } else {
+                    player.setPosition(position.discs(Position.BLACK), position.discs(Position.WHITE), position.sideToMove());
+                    move = player.bestMove(PLAY_DEPTH);
+                }
+                position.makeMove(move);
+            }
+            if (!over && position.legalMoves() != 0)
+                return new long[] { position.discs(Position.BLACK), position.discs(Position.WHITE), position.sideToMove() };
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import engine.ParallelSearch;
+import engine.Position;
+import engine.TranspositionTable;
+
+// Times fixed-depth parallel searches over a set of midgame positions for 1, 2, 4... threads and
+// prints the speedup of each thread count over one thread.
+//
+// Usage: java tools.SmpBenchmark [depth] [maxThreads] [positions] [hashMB]
+public class SmpBenchmark {
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int positions = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int hashMB = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        List<long[]> corpus = randomPositions(positions, 20, new SplittableRandom(2024));
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int t = 1; t < maxThreads; t *= 2)
+            threadCounts.add(t);
+        threadCounts.add(maxThreads);
+
+        System.out.printf("depth %d, %d positions, %d MB table%n", depth, corpus.size(), hashMB);
+        System.out.println("threads     time(ms)        nodes     knps  speedup");
+        double baseMillis = 0;
+        for (int threads : threadCounts) {
+            ParallelSearch search = new ParallelSearch(threads, new TranspositionTable(hashMB));
+            long nodes = 0;
+            long start = System.nanoTime();
+            for (long[] p : corpus) {
+                search.setPosition(p[0], p[1], (int) p[2]);
+                search.bestMove(depth);
+                nodes += search.nodes();
+            }
+            double millis = (System.nanoTime() - start) / 1e6;
+            search.shutdown();
+            if (threads == 1)
+                baseMillis = millis;
+            System.out.printf("%7d %12.1f %12d %8.0f %8.2f%n",
+                    threads, millis, nodes, nodes / millis, baseMillis / millis);
+        }
+    }
+
+    // Positions reached by random play, as {black, white, side}
+    static List<long[]> randomPositions(int count, int plies, SplittableRandom random) {
+        List<long[]> corpus = new ArrayList<>();
+        Position position = new Position();
+        while (corpus.size() < count) {
+            position.reset();
+            int ply = 0;
+            while (ply < plies) {
+                long moves = position.legalMoves();
+                if (moves == 0)
+                    break;
+                for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; skip--)
+                    moves &= moves - 1;
+                position.makeMove(Long.numberOfTrailingZeros(moves));
+                ply++;
+            }
+            if (ply == plies && position.legalMoves() != 0)
+                corpus.add(new long[] {
+                        position.discs(Position.BLACK), position.discs(Position.WHITE), position.sideToMove() });
+        }
+        return corpus;
+    }
+}
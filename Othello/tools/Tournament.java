@@ -0,0 +1,253 @@
+package tools;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import engine.Bitboard;
+import engine.Engine;
+import engine.Game;
+import engine.Position;
+import engine.ProbCut;
+import engine.Search;
+import engine.SearchResult;
+
+// Plays games between two engine configurations, A and B, on a pool of threads and writes one
+// line per game to a CSV or JSONL file (by its extension) the moment the game ends. Each opening
+// is played twice with the colors swapped, so neither side profits from a lopsided opening.
+//
+// An engine is "<depth>" or "<millis>ms", optionally followed by ",disc", ",positional" or
+// ",pattern", by ",e<empties>" for where the endgame solver takes over, and by ",full" for a
+// full-width search or ",mpc<sigmas>" for another Multi-ProbCut threshold, e.g. "4,pattern,e12"
+// or "200ms,full".
+//
+// Usage: java tools.Tournament [games=100] [a=4] [b=4,disc] [openings=6] [threads] [seed=1]
+//        [hash=4] [out=tournament.csv]
+public class Tournament {
+
+    private static final int DEFAULT_ENDGAME_EMPTIES = 12;
+
+    // One side of the match
+    private static final class Player {
+        int depth;
+        long millis;
+        int evaluation = Search.PATTERN_EVAL;
+        int endgameEmpties = DEFAULT_ENDGAME_EMPTIES;
+        double selectivity = ProbCut.DEFAULT_THRESHOLD;
+
+        Player(String spec) {
+            String[] parts = spec.split(",");
+            if (parts[0].endsWith("ms"))
+                millis = Long.parseLong(parts[0].substring(0, parts[0].length() - 2));
+            else
+                depth = Integer.parseInt(parts[0]);
+            for (int i = 1; i < parts.length; i++) {
+                String part = parts[i];
+                if (part.equals("disc"))
+                    evaluation = Search.DISC_EVAL;
+                else if (part.equals("positional"))
+                    evaluation = Search.POSITIONAL_EVAL;
+                else if (part.equals("pattern"))
+                    evaluation = Search.PATTERN_EVAL;
+                else if (part.startsWith("e"))
+                    endgameEmpties = Integer.parseInt(part.substring(1));
+                else if (part.equals("full"))
+                    selectivity = Search.FULL_WIDTH;
+                else if (part.startsWith("mpc"))
+                    selectivity = part.length() == 3 ? ProbCut.DEFAULT_THRESHOLD : Double.parseDouble(part.substring(3));
+                else
+                    throw new IllegalArgumentException("unknown engine option: " + part);
+            }
+        }
+
+        Engine newEngine(int hashMB) {
+            Engine engine = new Engine(1, hashMB);
+            engine.setEvaluation(evaluation);
+            engine.setEndgameEmpties(endgameEmpties);
+            engine.setSelectivity(selectivity);
+            engine.setEndgameTableMB(hashMB);
+            return engine;
+        }
+
+        SearchResult search(Engine engine, Game game) {
+            return millis > 0 ? engine.searchInTime(game, millis) : engine.search(game, depth);
+        }
+    }
+
+    // A finished game, from A's point of view
+    private static final class Result {
+        int index;
+        String opening;
+        int colorA;
+        int black, white;
+        StringBuilder moves = new StringBuilder();
+        int movesA, movesB;
+        long nodesA, nodesB;
+        long nanosA, nanosB;
+
+        int scoreA() {
+            return colorA == Position.BLACK ? black - white : white - black;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = 100, openings = 6, hashMB = 4;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        String a = "4", b = "4,disc";
+        Path out = Paths.get("tournament.csv");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0)
+                throw new IllegalArgumentException("expected name=value: " + arg);
+            String name = arg.substring(0, eq), value = arg.substring(eq + 1);
+            switch (name) {
+                case "games": games = Integer.parseInt(value); break;
+                case "a": a = value; break;
+                case "b": b = value; break;
+                case "openings": openings = Integer.parseInt(value); break;
+                case "threads": threads = Integer.parseInt(value); break;
+                case "seed": seed = Long.parseLong(value); break;
+                case "hash": hashMB = Integer.parseInt(value); break;
+                case "out": out = Paths.get(value); break;
+                default: throw new IllegalArgumentException("unknown option: " + name);
+            }
+        }
+        Player playerA = new Player(a), playerB = new Player(b);
+        boolean json = out.toString().endsWith(".jsonl");
+        System.out.printf("%d games, A = %s, B = %s, %d random opening plies, %d threads -> %s%n",
+                games, a, b, openings, threads, out);
+
+        int hash = hashMB;
+        ThreadLocal<Engine[]> engines = ThreadLocal.withInitial(
+                () -> new Engine[] { playerA.newEngine(hash), playerB.newEngine(hash) });
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        int[] totals = new int[3];
+        long[] work = new long[2];
+        try (BufferedWriter writer = Files.newBufferedWriter(out)) {
+            if (!json)
+                writer.write("game,opening,a_color,black,white,a_score,a_moves,b_moves,a_nodes,b_nodes,"
+                        + "a_ms_per_move,b_ms_per_move,moves\n");
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < games; i++) {
+                int index = i;
+                long openingSeed = seed * 1_000_003 + i / 2;
+                int plies = openings;
+                running.add(pool.submit(() -> {
+                    Engine[] pair = engines.get();
+                    Result result = play(index, playerA, playerB, pair[0], pair[1], openingSeed, plies);
+                    synchronized (writer) {
+                        writer.write(json ? toJson(result) : toCsv(result));
+                        writer.newLine();
+                        writer.flush();
+                        int score = result.scoreA();
+                        totals[score > 0 ? 0 : score < 0 ? 1 : 2]++;
+                        work[0] += result.nodesA + result.nodesB;
+                        work[1] += result.nanosA + result.nanosB;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : running)
+                f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int wins = totals[0], losses = totals[1], draws = totals[2];
+        double score = (wins + draws / 2.0) / games;
+        System.out.printf(Locale.ROOT, "A +%d -%d =%d, score %.1f%%, Elo %+.0f%n", wins, losses, draws, 100 * score, elo(score));
+        System.out.printf(Locale.ROOT, "%.1f s, %.0f games/min, %.0f knps in search%n",
+                seconds, games / seconds * 60, work[0] / (work[1] / 1e6));
+    }
+
+    // Plays out one game; even games give A black, odd games give it white, and both games of a
+    // pair start from the same random opening
+    private static Result play(int index, Player playerA, Player playerB, Engine engineA, Engine engineB,
+            long openingSeed, int openingPlies) {
+        Result result = new Result();
+        result.index = index;
+        result.colorA = (index & 1) == 0 ? Position.BLACK : Position.WHITE;
+        Game game = new Game();
+        SplittableRandom random = new SplittableRandom(openingSeed);
+        StringBuilder opening = new StringBuilder();
+        for (int ply = 0; ply < openingPlies && !game.isOver(); ply++) {
+            if (game.mustPass()) {
+                game.play(Position.PASS);
+                continue;
+            }
+            int move = randomMove(game, random);
+            opening.append(Bitboard.name(move));
+            game.play(move);
+        }
+        result.opening = opening.toString();
+
+        while (!game.isOver()) {
+            if (game.mustPass()) {
+                game.play(Position.PASS);
+                continue;
+            }
+            boolean turnA = game.sideToMove() == result.colorA;
+            long t = System.nanoTime();
+            SearchResult move = turnA ? playerA.search(engineA, game) : playerB.search(engineB, game);
+            long nanos = System.nanoTime() - t;
+            if (turnA) {
+                result.movesA++;
+                result.nodesA += move.nodes();
+                result.nanosA += nanos;
+            } else {
+                result.movesB++;
+                result.nodesB += move.nodes();
+                result.nanosB += nanos;
+            }
+            result.moves.append(Bitboard.name(move.move()));
+            game.play(move.move());
+        }
+        result.black = game.count(Position.BLACK);
+        result.white = game.count(Position.WHITE);
+        return result;
+    }
+
+    private static int randomMove(Game game, SplittableRandom random) {
+        long moves = game.legalMoves();
+        for (int skip = random.nextInt(Bitboard.count(moves)); skip > 0; skip--)
+            moves &= moves - 1;
+        return Long.numberOfTrailingZeros(moves);
+    }
+
+    private static String toCsv(Result r) {
+        return String.format(Locale.ROOT, "%d,%s,%s,%d,%d,%d,%d,%d,%d,%d,%.3f,%.3f,%s",
+                r.index, r.opening, r.colorA == Position.BLACK ? "black" : "white", r.black, r.white, r.scoreA(),
+                r.movesA, r.movesB, r.nodesA, r.nodesB, perMove(r.nanosA, r.movesA), perMove(r.nanosB, r.movesB),
+                r.moves);
+    }
+
+    private static String toJson(Result r) {
+        return String.format(Locale.ROOT, "{\"game\":%d,\"opening\":\"%s\",\"a_color\":\"%s\",\"black\":%d,"
+                + "\"white\":%d,\"a_score\":%d,\"a_moves\":%d,\"b_moves\":%d,\"a_nodes\":%d,\"b_nodes\":%d,"
+                + "\"a_ms_per_move\":%.3f,\"b_ms_per_move\":%.3f,\"moves\":\"%s\"}",
+                r.index, r.opening, r.colorA == Position.BLACK ? "black" : "white", r.black, r.white, r.scoreA(),
+                r.movesA, r.movesB, r.nodesA, r.nodesB, perMove(r.nanosA, r.movesA), perMove(r.nanosB, r.movesB),
+                r.moves);
+    }
+
+    private static double perMove(long nanos, int moves) {
+        return moves == 0 ? 0 : nanos / 1e6 / moves;
+    }
+
+    // Elo difference that expects 'score' (0..1) per game
+    private static double elo(double score) {
+        double s = Math.min(Math.max(score, 1e-3), 1 - 1e-3);
+        return -400 * Math.log10(1 / s - 1);
+    }
+}
@@ -0,0 +1,98 @@
+package tools;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import engine.Bitboard;
+import engine.WthorDatabase;
+
+// Replays WTHOR game files through WthorDatabase.positions() and reports how fast that goes,
+// along with what a tuning run would start from: the positions, the games that did not replay,
+// and how the final result looks by stage of the game (the average disc difference for the side
+// to move, and how often it went on to win).
+//
+// Usage: java tools.WthorImport [threads=<cores>] <file.wtb>...
+public class WthorImport {
+
+    private static final int STAGES = 6;
+    private static final int EMPTIES_PER_STAGE = 10;
+
+    // One thread's totals
+    private static final class Totals implements WthorDatabase.PositionSink {
+        long positions;
+        long skipped;
+        final long[] count = new long[STAGES];
+        final long[] scoreSum = new long[STAGES];
+        final long[] wins = new long[STAGES];
+
+        @Override
+        public void position(long black, long white, int side, int move, int score) {
+            int stage = Math.min(STAGES - 1, (Bitboard.SQUARES - Bitboard.count(black | white)) / EMPTIES_PER_STAGE);
+            positions++;
+            count[stage]++;
+            scoreSum[stage] += score;
+            if (score > 0)
+                wins[stage]++;
+        }
+
+        @Override
+        public void skipped(int game) {
+            skipped++;
+        }
+
+        void add(Totals other) {
+            positions += other.positions;
+            skipped += other.skipped;
+            for (int i = 0; i < STAGES; i++) {
+                count[i] += other.count[i];
+                scoreSum[i] += other.scoreSum[i];
+                wins[i] += other.wins[i];
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("threads="))
+                threads = Integer.parseInt(arg.substring("threads=".length()));
+            else
+                files.add(Paths.get(arg));
+        }
+        if (files.isEmpty()) {
+            System.err.println("usage: java tools.WthorImport [threads=<cores>] <file.wtb>...");
+            System.exit(2);
+        }
+
+        Totals all = new Totals();
+        long games = 0, nanos = 0;
+        for (Path file : files) {
+            WthorDatabase database = WthorDatabase.open(file);
+            long start = System.nanoTime();
+            Totals totals = new Totals();
+            for (Totals t : database.positions(threads, Totals::new))
+                totals.add(t);
+            long elapsed = System.nanoTime() - start;
+            System.out.printf(Locale.ROOT, "%s: %d games of %d, %,d positions, %d skipped, %.1f ms%n", file,
+                    database.size(), database.year(), totals.positions, totals.skipped, elapsed / 1e6);
+            all.add(totals);
+            games += database.size();
+            nanos += elapsed;
+        }
+
+        System.out.printf(Locale.ROOT, "%,d games, %,d positions on %d threads: %.2f M positions/s%n",
+                games, all.positions, threads, nanos == 0 ? 0 : all.positions * 1e3 / nanos);
+        System.out.println("empties   positions  avg score  side to move wins");
+        for (int i = STAGES - 1; i >= 0; i--) {
+            if (all.count[i] == 0)
+                continue;
+            int low = i * EMPTIES_PER_STAGE, high = i == STAGES - 1 ? Bitboard.SQUARES - 4 : low + EMPTIES_PER_STAGE - 1;
+            System.out.printf(Locale.ROOT, "%2d-%-2d   %,11d  %+9.2f  %16.1f%%%n", low, high, all.count[i],
+                    (double) all.scoreSum[i] / all.count[i], 100.0 * all.wins[i] / all.count[i]);
+        }
+    }
+}
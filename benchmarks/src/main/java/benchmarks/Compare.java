@@ -0,0 +1,119 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Checks a JMH CSV result against an earlier one and exits with status 1 if anything got worse
+// by more than 'threshold' percent and by more than the two runs' error bars together. Scores
+// are compared in the direction of their mode (higher is better for throughput, lower for
+// times), as are counters such as the search's nodes; of the GC profiler's figures only the
+// allocation per operation is compared, lower being better, and differences under a byte are
+// ignored.
+//
+// Usage: java -cp benchmarks.jar benchmarks.Compare <baseline.csv> <current.csv> [threshold=5]
+public class Compare {
+
+    private static final String ALLOCATION = ":gc.alloc.rate.norm";
+    private static final double MIN_ALLOCATION_BYTES = 1;
+
+    private static final class Row {
+        final String mode;
+        final double score, error;
+        final String unit;
+
+        Row(String mode, double score, double error, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.error = Double.isNaN(error) ? 0 : error;
+            this.unit = unit;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: java benchmarks.Compare <baseline.csv> <current.csv> [threshold=5]");
+            System.exit(2);
+        }
+        Map<String, Row> baseline = read(Paths.get(args[0]));
+        Map<String, Row> current = read(Paths.get(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2].replace("threshold=", "")) / 100 : 0.05;
+
+        int regressions = 0;
+        for (Map.Entry<String, Row> e : current.entrySet()) {
+            String name = e.getKey();
+            Row now = e.getValue(), before = baseline.get(name);
+            if (before == null || (name.contains(":gc.") && !name.contains(ALLOCATION)))
+                continue;
+            boolean lowerIsBetter = name.contains(ALLOCATION) || !now.mode.equals("thrpt");
+            double worse = lowerIsBetter ? now.score - before.score : before.score - now.score;
+            double change = before.score == 0 ? 0 : (now.score - before.score) / before.score;
+            boolean regressed = worse > threshold * Math.abs(before.score) && worse > before.error + now.error
+                    && !(name.contains(ALLOCATION) && worse < MIN_ALLOCATION_BYTES);
+            if (regressed)
+                regressions++;
+            System.out.printf(Locale.ROOT, "%-70s %14.3f -> %14.3f %-7s %+7.1f%%%s%n", name, before.score,
+                    now.score, now.unit, 100 * change, regressed ? "  REGRESSION" : "");
+        }
+        for (String name : baseline.keySet())
+            if (!current.containsKey(name) && !name.contains(":gc."))
+                System.out.println(name + ": missing from " + args[1]);
+        System.out.println(regressions == 0 ? "no regressions" : regressions + " regression(s)");
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    // Rows by benchmark name plus its parameters, e.g. "benchmarks.SearchBenchmark.bestMove depth=8"
+    private static Map<String, Row> read(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty())
+            throw new IOException("empty result file: " + file);
+        List<String> header = split(lines.get(0));
+        int benchmark = header.indexOf("Benchmark"), mode = header.indexOf("Mode"), score = header.indexOf("Score");
+        int error = header.indexOf("Score Error (99.9%)"), unit = header.indexOf("Unit");
+        if (benchmark < 0 || mode < 0 || score < 0 || unit < 0)
+            throw new IOException("not a JMH CSV result: " + file);
+        Map<String, Row> rows = new LinkedHashMap<>();
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isBlank())
+                continue;
+            List<String> fields = split(line);
+            StringBuilder key = new StringBuilder(fields.get(benchmark));
+            for (int i = 0; i < header.size(); i++)
+                if (header.get(i).startsWith("Param: ") && i < fields.size() && !fields.get(i).isEmpty())
+                    key.append(' ').append(header.get(i).substring(7)).append('=').append(fields.get(i));
+            rows.put(key.toString(), new Row(fields.get(mode), Double.parseDouble(fields.get(score)),
+                    error < 0 ? 0 : Double.parseDouble(fields.get(error)), fields.get(unit)));
+        }
+        return rows;
+    }
+
+    // Fields of one CSV line, quotes removed
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"')
+                    field.append(line.charAt(++i));
+                else
+                    quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.util.SplittableRandom;
+
+import engine.Position;
+
+// The positions every benchmark runs over: random games from the start, stopped after a number of
+// plies drawn from a fixed seed, so every run and every machine measures the same midgames.
+final class Corpus {
+
+    private static final long SEED = 2024;
+
+    final long[] black;
+    final long[] white;
+    final int[] side;
+
+    // 'size' positions with a move to play, each 'minPlies' to 'maxPlies' moves into a game
+    Corpus(int size, int minPlies, int maxPlies) {
+        black = new long[size];
+        white = new long[size];
+        side = new int[size];
+        SplittableRandom random = new SplittableRandom(SEED);
+        Position position = new Position();
+        for (int i = 0; i < size; ) {
+            position.reset();
+            int plies = minPlies + random.nextInt(maxPlies - minPlies + 1);
+            for (int ply = 0; ply < plies; ply++) {
+                long moves = position.legalMoves();
+                if (moves == 0)
+                    break;
+                for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; skip--)
+                    moves &= moves - 1;
+                position.makeMove(Long.numberOfTrailingZeros(moves));
+            }
+            if (position.legalMoves() == 0)
+                continue;
+            black[i] = position.discs(Position.BLACK);
+            white[i] = position.discs(Position.WHITE);
+            side[i] = position.sideToMove();
+            i++;
+        }
+    }
+
+    int size() {
+        return side.length;
+    }
+
+    long own(int i) {
+        return side[i] == Position.BLACK ? black[i] : white[i];
+    }
+
+    long opp(int i) {
+        return side[i] == Position.BLACK ? white[i] : black[i];
+    }
+}
@@ -0,0 +1,36 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// JMH's command line with this project's defaults: the GC profiler on, for allocation per
+// operation (gc.alloc.rate.norm) next to every score, and the results written as CSV to
+// jmh-result.csv for Compare to check against an earlier run. Options on the command line
+// (-rf json, -rff <file>, -prof ..., a benchmark pattern) still take precedence.
+//
+// Usage: java -jar benchmarks.jar [JMH options] [benchmark regexp]
+public class Main {
+
+    public static final String DEFAULT_RESULT_FILE = "jmh-result.csv";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions command = new CommandLineOptions(args);
+        if (command.shouldHelp() || command.shouldList() || command.shouldListProfilers()
+                || command.shouldListResultFormats() || command.shouldListWithParams()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(command);
+        if (command.getProfilers().isEmpty())
+            options.addProfiler(GCProfiler.class);
+        if (!command.getResultFormat().hasValue())
+            options.resultFormat(ResultFormatType.CSV);
+        if (!command.getResult().hasValue())
+            options.result(DEFAULT_RESULT_FILE);
+        new Runner(options.build()).run();
+    }
+}
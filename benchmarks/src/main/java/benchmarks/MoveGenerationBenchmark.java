@@ -0,0 +1,90 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import engine.Bitboard;
+import engine.Position;
+
+// The board primitives under everything else, in positions per microsecond over a fixed corpus of
+// midgames: legal move generation (Othello.computeLegalMovesFor and isValidMove), whether a side
+// can move at all (hasValidMove), the discs each legal move flips, and playing and taking back
+// each legal move (what getMove and the search do per move).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MoveGenerationBenchmark {
+
+    static final int POSITIONS = 256;
+
+    private Corpus corpus;
+    private Position[] positions;
+
+    @Setup
+    public void setUp() {
+        corpus = new Corpus(POSITIONS, 16, 44);
+        positions = new Position[POSITIONS];
+        for (int i = 0; i < POSITIONS; i++)
+            positions[i] = new Position(corpus.black[i], corpus.white[i], corpus.side[i]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public long legalMoves() {
+        long sum = 0;
+        for (int i = 0; i < POSITIONS; i++)
+            sum += Bitboard.legalMoves(corpus.own(i), corpus.opp(i));
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public int hasMove() {
+        int count = 0;
+        for (int i = 0; i < POSITIONS; i++)
+            if (Bitboard.hasMove(corpus.opp(i), corpus.own(i)))
+                count++;
+        return count;
+    }
+
+    // Every legal move of every position
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public long flips() {
+        long sum = 0;
+        for (int i = 0; i < POSITIONS; i++) {
+            long own = corpus.own(i), opp = corpus.opp(i);
+            for (long moves = Bitboard.legalMoves(own, opp); moves != 0; moves &= moves - 1)
+                sum += Bitboard.flips(own, opp, Long.numberOfTrailingZeros(moves));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSITIONS)
+    public long makeUndo() {
+        long sum = 0;
+        for (Position position : positions) {
+            for (long moves = position.legalMoves(); moves != 0; moves &= moves - 1) {
+                position.makeMove(Long.numberOfTrailingZeros(moves));
+                sum += position.hash();
+                position.undoMove();
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,76 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import engine.Search;
+import engine.TranspositionTable;
+
+// Fixed-depth searches (Search.bestMove, the negamax behind the AI's minimax) of a corpus of
+// midgames, each from an empty transposition table so that every invocation does the same work.
+// The primary score is searches per second; the "nodes" counter next to it is nodes per second.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class SearchBenchmark {
+
+    private static final int POSITIONS = 8;
+    private static final int HASH_MB = 16;
+
+    // Reported by JMH as a rate next to the primary score
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Param({ "6", "8" })
+    public int depth;
+
+    private Corpus corpus;
+    private Search search;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        corpus = new Corpus(POSITIONS, 20, 30);
+        search = new Search(new TranspositionTable(HASH_MB));
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        search.transpositionTable().clear();
+    }
+
+    // One position per invocation, going round the corpus
+    @Benchmark
+    public int bestMove(Nodes counter) {
+        int i = next;
+        next = (next + 1) % POSITIONS;
+        search.setPosition(corpus.black[i], corpus.white[i], corpus.side[i]);
+        int move = search.bestMove(depth);
+        counter.nodes += search.nodes();
+        return move;
+    }
+}